@@ -9,6 +9,7 @@ public class Airplane {
     private double fuelBurnRate;
     private double fuelCapacity;
     private double airspeed;
+    private int fuelMask; // fuelType decoded once into FuelTypes bits
     
     /**
      * constructor for airplane class
@@ -26,6 +27,7 @@ public class Airplane {
         this.fuelBurnRate = fuelBurnRate;
         this.fuelCapacity = fuelCapacity;
         this.airspeed = airspeed;
+        this.fuelMask = FuelTypes.decode(fuelType);
     }
 
     //Getter methods
@@ -35,6 +37,7 @@ public class Airplane {
     public double getFuelBurnRate() { return fuelBurnRate; }
     public double getFuelCapacity() { return fuelCapacity; }
     public double getAirspeed() { return airspeed; }
+    public int getFuelMask() { return fuelMask; }
 
     public double getMaxRange(){
         if(fuelBurnRate <= 0) return 0;
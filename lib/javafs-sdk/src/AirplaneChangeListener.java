@@ -0,0 +1,17 @@
+package src;
+
+/**
+ * Receives a callback from AirplaneManager every time an airplane is added, modified or removed.
+ * Used by caches that are built on top of the airplane list.
+ * Listeners run on the writer's thread before the write returns; for asynchronous, batched
+ * delivery use the manager's ChangeStream instead.
+ */
+public interface AirplaneChangeListener {
+
+    /**
+     * Called after the airplane list has been changed.
+     * @param before: the airplane as it was, or null if it was just added
+     * @param after: the airplane as it is now, or null if it was just removed
+     */
+    void airplaneChanged(Airplane before, Airplane after);
+}
@@ -1,27 +1,90 @@
 package src;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 /**
  * This class will manage the list of airplanes and handles loading and saving 
  * airplane data from a file.
+ * It can be used from several threads (the UI, the planning service, the file watcher): every
+ * change and lookup holds the manager's lock, but never while waiting for user input.
+ * getAirplanes returns a read-only copy, so callers can iterate it without the lock.
  */
-public class AirplaneManager {
-    private final List<Airplane> airplanes;
+public class AirplaneManager implements AutoCloseable {
+    private final List<Airplane> slots = new ArrayList<>(); // Airplanes in list order; null = removed (see deleteAirplane)
+    private final Map<Airplane, Integer> slotsByAirplane = new IdentityHashMap<>(); // Airplane -> its position in slots
+    private int removedSlots;
+    private volatile List<Airplane> airplanes; // Read-only copy of the live slots returned by getAirplanes; null = changed since
+    private final Map<String, Airplane> airplanesByMakeModel = new HashMap<>(); // Upper-case make/model -> airplane, kept in sync with the list
+    private int sharedMakeModels; // Airplanes whose make/model was already taken when added (only possible programmatically)
+    private final List<AirplaneChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ChangeStream<Airplane> changeStream = new ChangeStream<>(); // Asynchronous, one batch per operation
     private static final String FILE_NAME = "Airplanes_Database.csv";
+    private static final String CSV_HEADER = "Make and Model,Plane Type,Fuel Type,Fuel Burn Rate,Fuel Capacity,Airspeed";
+    private final ChangeJournal journal = ChangeJournal.open(FILE_NAME, CSV_HEADER); // Edits are appended here, see saveChange
+    private Map<Long, String> csvRowKeys; // Row hash -> make/model key of the CSV as last read, see reloadFromFile
     
     /**
      * This constructor initializes the airplane list by loading data from file
      */
     public AirplaneManager() {
-        this.airplanes = loadAirplanes();
+        for (Airplane airplane : loadAirplanes()) {
+            insertAirplane(airplane);
+        }
     }
     
+    // Returns the CSV file the airplanes are loaded from and saved to
+    String getFileName() {
+        return FILE_NAME;
+    }
+
+    // Writes out pending journal records and stops the journal's background thread; do not edit afterwards
+    @Override
+    public void close() {
+        journal.close();
+    }
+
     /*
      * 
-     * @return the list of airplanes
+     * @return the list of airplanes (read-only; the first call after a change copies the live airplanes)
      */
     public List<Airplane> getAirplanes() { 
-        return airplanes; 
+        List<Airplane> result = airplanes;
+        if (result != null) {
+            return result; // Unchanged since the last call: no lock needed
+        }
+        synchronized (this) {
+            result = airplanes;
+            if (result == null) {
+                List<Airplane> copy = new ArrayList<>(slots.size() - removedSlots);
+                for (Airplane airplane : slots) {
+                    if (airplane != null) copy.add(airplane);
+                }
+                result = Collections.unmodifiableList(copy);
+                airplanes = result;
+            }
+        }
+        return result; 
+    }
+
+    // Finds an airplane by exact make/model (case-insensitive), or returns null
+    private synchronized Airplane findAirplane(String makeModel) {
+        return airplanesByMakeModel.get(makeModelKey(makeModel));
+    }
+
+    // Registers a listener that is told about every added, modified or removed airplane
+    public void addChangeListener(AirplaneChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Unregisters a listener added with addChangeListener
+    public void removeChangeListener(AirplaneChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Returns the asynchronous stream of airplane changes; each operation (or bulk import) is one batch
+    public ChangeStream<Airplane> getChangeStream() {
+        return changeStream;
     }
     
     /*
@@ -35,8 +98,11 @@ public class AirplaneManager {
         // Case 1: If we receive an Airplane object directly, add it to the list and save the file.
         if (airplaneOrScanner instanceof Airplane) {
             Airplane airplane = (Airplane) airplaneOrScanner;
-            airplanes.add(airplane);
-            saveAirplanes();
+            synchronized (this) {
+                insertAirplane(airplane);
+                saveChange(ChangeJournal.Op.ADD, airplane.getMakeModel(), airplane);
+                fireAirplaneChanged(null, airplane);
+            }
         }
         // Case 2: If we receive a Scanner object, we will prompt the user for input.
         else if (airplaneOrScanner instanceof Scanner) {
@@ -47,10 +113,8 @@ public class AirplaneManager {
                 String makeModel = getStringInput(scanner, "Enter Airplane Make and Model: ");
                 
                 // Check if the make/model already exists
-                for (Airplane existingAirplane : airplanes) {
-                    if (existingAirplane.getMakeModel().equalsIgnoreCase(makeModel)) {
-                        throw new IllegalArgumentException("An airplane with this make and model already exists");
-                    }
+                if (findAirplane(makeModel) != null) {
+                    throw new IllegalArgumentException("An airplane with this make and model already exists");
                 }
                 
                 String planeType = getStringInput(scanner, "Enter Airplane Type (Jet, Prop, TurboProp): ");
@@ -63,8 +127,14 @@ public class AirplaneManager {
     
                 // Create a new airplane object and add it to the list
                 Airplane newAirplane = new Airplane(makeModel, planeType, fuelType, fuelBurnRate, fuelCapacity, airspeed);
-                airplanes.add(newAirplane);
-                saveAirplanes();
+                synchronized (this) {
+                    if (findAirplane(makeModel) != null) { // Added by someone else while the user was typing
+                        throw new IllegalArgumentException("An airplane with this make and model already exists");
+                    }
+                    insertAirplane(newAirplane);
+                    saveChange(ChangeJournal.Op.ADD, makeModel, newAirplane);
+                    fireAirplaneChanged(null, newAirplane);
+                }
                 System.out.println("\nAirplane added successfully!");
             } catch (IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
@@ -73,6 +143,87 @@ public class AirplaneManager {
         }
     }
     
+    /*
+     * Adds many airplanes at once and saves them with a single journal write.
+     * Every airplane is validated and checked for a duplicate make/model in one hashed pass before
+     * anything is changed, so the accepted airplanes are added together.
+     *
+     * @param newAirplanes - the airplanes to add, in order
+     * @return the airplanes that were added, and the rejected ones with the reason (missing fields,
+     *         unknown plane or fuel type, non-positive numbers, or a make/model that is already taken)
+     */
+    public synchronized ImportResult<Airplane> addAirplanes(Iterable<Airplane> newAirplanes) {
+        if (newAirplanes == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        ImportResult<Airplane> result = new ImportResult<>();
+        Map<String, Integer> rowsByMakeModel = new HashMap<>(); // Upper-case make/model -> first row of the import that uses it
+        List<Airplane> accepted = new ArrayList<>();
+        int row = 0;
+        for (Airplane airplane : newAirplanes) {
+            row++;
+            String reason = validateAirplane(airplane);
+            if (reason == null) {
+                Integer firstRow = rowsByMakeModel.putIfAbsent(makeModelKey(airplane.getMakeModel()), row);
+                if (firstRow != null) {
+                    reason = "Duplicate make and model " + airplane.getMakeModel() + " (same as row " + firstRow + ")";
+                } else if (airplanesByMakeModel.containsKey(makeModelKey(airplane.getMakeModel()))) {
+                    reason = "An airplane with make and model " + airplane.getMakeModel() + " already exists";
+                }
+            }
+            if (reason != null) {
+                result.reject(row, airplane, reason);
+            } else {
+                accepted.add(airplane);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return result;
+        }
+
+        // Apply and persist once
+        List<String> keys = new ArrayList<>(accepted.size());
+        List<String> csvRows = new ArrayList<>(accepted.size());
+        for (Airplane airplane : accepted) {
+            insertAirplane(airplane);
+            keys.add(airplane.getMakeModel());
+            csvRows.add(toCsvRow(airplane));
+            result.accept(airplane);
+        }
+        journal.append(ChangeJournal.Op.ADD, keys, csvRows);
+        journal.compactIfNeeded(this::getAirplanes, AirplaneManager::toCsvRow);
+        List<ChangeEvent<Airplane>> events = new ArrayList<>(accepted.size());
+        for (Airplane airplane : accepted) {
+            events.add(new ChangeEvent<>(null, airplane));
+        }
+        fireAirplaneChanges(events);
+        return result;
+    }
+
+    // Same as addAirplanes above, for a stream of airplanes (consumed once)
+    public ImportResult<Airplane> addAirplanes(Stream<Airplane> newAirplanes) {
+        if (newAirplanes == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        return addAirplanes((Iterable<Airplane>) newAirplanes::iterator);
+    }
+
+    // Returns why an airplane cannot be imported, or null if it is valid.
+    private static String validateAirplane(Airplane airplane) {
+        if (airplane == null) return "Airplane is missing";
+        if (airplane.getMakeModel() == null || airplane.getMakeModel().isBlank()) return "Missing make and model";
+        String planeType = airplane.getPlaneType();
+        if (planeType == null || !(planeType.equalsIgnoreCase("Jet") || planeType.equalsIgnoreCase("Prop")
+                || planeType.equalsIgnoreCase("TurboProp"))) {
+            return "Plane type must be Jet, Prop or TurboProp";
+        }
+        if (airplane.getFuelType() != 1 && airplane.getFuelType() != 2) return "Fuel type must be 1 (AVGAS) or 2 (Jet A)";
+        if (!(airplane.getFuelBurnRate() > 0) || Double.isInfinite(airplane.getFuelBurnRate())) return "Fuel burn rate must be a positive number";
+        if (!(airplane.getFuelCapacity() > 0) || Double.isInfinite(airplane.getFuelCapacity())) return "Fuel capacity must be a positive number";
+        if (!(airplane.getAirspeed() > 0) || Double.isInfinite(airplane.getAirspeed())) return "Airspeed must be a positive number";
+        return null;
+    }
+
     /*
      * This is the handler method for validation of the string inputs used in addAirplane.
      * If the input is empty, it throws an IllegalArgumentException.
@@ -153,17 +304,19 @@ public class AirplaneManager {
             Airplane updatedAirplane = (Airplane) additionalParams[0];
 
             // Find and replace the airplane with matching make/model
-            for (int i = 0; i < airplanes.size(); i++) {
-                if (airplanes.get(i).getMakeModel().equalsIgnoreCase(makeModel)) {
-                    airplanes.set(i, updatedAirplane);
-                    saveAirplanes();
-                    break;
+            synchronized (this) {
+                Airplane oldAirplane = airplanesByMakeModel.get(makeModelKey(makeModel));
+                if (oldAirplane != null) {
+                    replaceAirplane(oldAirplane, updatedAirplane);
+                    saveChange(ChangeJournal.Op.MODIFY, oldAirplane.getMakeModel(), updatedAirplane);
+                    fireAirplaneChanged(oldAirplane, updatedAirplane);
                 }
             }
         } 
         // Case 2: Interactive modification via UI
         else if (param1 instanceof Scanner) {
             Scanner scanner = (Scanner) param1;
+            List<Airplane> airplanes = getAirplanes(); // Numbers shown to the user refer to this version of the list
             int start = 0; // Starting index for displaying airplanes
             int batchSize = 10; // Number of airplanes to display at a time
             boolean moreAirplanes = true; // Flag to control the loop
@@ -196,13 +349,7 @@ public class AirplaneManager {
                         String makeModel = getStringInput(scanner, "Enter make and model to search: ");
 
                         // Search for matching airplane
-                        Airplane foundAirplane = null;
-                        for (Airplane airplane : airplanes) {
-                            if (airplane.getMakeModel().equalsIgnoreCase(makeModel)) {
-                                foundAirplane = airplane;
-                                break;
-                            }
-                        }
+                        Airplane foundAirplane = findAirplane(makeModel);
 
                         if (foundAirplane == null) {
                             System.out.println("No airplane found with make/model: " + makeModel);
@@ -256,10 +403,9 @@ public class AirplaneManager {
             
             // If the make/model changed, check for duplicates
             if (!newMakeModel.equalsIgnoreCase(makeModel)) {
-                for (Airplane existingAirplane : airplanes) {
-                    if (existingAirplane != airplane && existingAirplane.getMakeModel().equalsIgnoreCase(newMakeModel)) {
-                        throw new IllegalArgumentException("An airplane with this make and model already exists");
-                    }
+                Airplane existingAirplane = findAirplane(newMakeModel);
+                if (existingAirplane != null && existingAirplane != airplane) {
+                    throw new IllegalArgumentException("An airplane with this make and model already exists");
                 }
             }
             
@@ -281,15 +427,16 @@ public class AirplaneManager {
             Airplane updatedAirplane = new Airplane(newMakeModel, planeType, fuelType, fuelBurnRate, fuelCapacity, airspeed);
 
             // Update the airplane in the list
-            for (int i = 0; i < airplanes.size(); i++) {
-                if (airplanes.get(i).getMakeModel().equalsIgnoreCase(makeModel)) {
-                    airplanes.set(i, updatedAirplane);
-                    break;
+            synchronized (this) {
+                Airplane oldAirplane = airplanesByMakeModel.get(makeModelKey(makeModel));
+                if (oldAirplane != null) {
+                    replaceAirplane(oldAirplane, updatedAirplane);
+
+                    // Save changes to the file
+                    saveChange(ChangeJournal.Op.MODIFY, makeModel, updatedAirplane);
+                    fireAirplaneChanged(oldAirplane, updatedAirplane);
                 }
             }
-
-            // Save changes to the file
-            saveAirplanes();
             System.out.println("\nAirplane updated successfully!");
 
         } catch (IllegalArgumentException e) {
@@ -490,7 +637,7 @@ public class AirplaneManager {
             }
 
             // Step 4: Perform search with partial matching.
-            for (Airplane airplane : airplanes) {
+            for (Airplane airplane : getAirplanes()) {
                 if (searchByMakeModel) {
                     // Case-insensitive, partial match for make and model.
                     if (airplane.getMakeModel().toLowerCase().contains(searchTerm)) {
@@ -576,16 +723,15 @@ public class AirplaneManager {
         else if (searchParam instanceof String) {
             String searchValue = (String) searchParam;
 
-            // Primary search by exact make/model match (case-insensitive).
-            for (Airplane airplane : airplanes) {
-                if (airplane.getMakeModel().equalsIgnoreCase(searchValue)) {
-                    return airplane;
-                }
+            // Primary search by exact make/model match (case-insensitive), using the hash index.
+            Airplane byMakeModel = findAirplane(searchValue);
+            if (byMakeModel != null) {
+                return byMakeModel;
             }
 
             // Secondary search by exact plane type match (if enabled by flag).
             if (additionalParams.length > 0 && additionalParams[0] instanceof Boolean && !(Boolean) additionalParams[0]) {
-                for (Airplane airplane : airplanes) {
+                for (Airplane airplane : getAirplanes()) {
                     if (airplane.getPlaneType().equalsIgnoreCase(searchValue)) {
                         return airplane;
                     }
@@ -635,12 +781,84 @@ public class AirplaneManager {
         // Case 2: Programmatic removal using Make/Model.
         else if (scannerOrMakeModel instanceof String) {
             String makeModel = (String) scannerOrMakeModel;
-            airplanes.removeIf(airplane -> airplane.getMakeModel().equalsIgnoreCase(makeModel));
-            saveAirplanes();
+            synchronized (this) {
+                if (!airplanesByMakeModel.containsKey(makeModelKey(makeModel))) {
+                    return; // Nothing to remove
+                }
+                List<Airplane> removed = deleteAirplanes(makeModelKey(makeModel));
+                saveChange(ChangeJournal.Op.REMOVE, makeModel, null);
+                List<ChangeEvent<Airplane>> events = new ArrayList<>(removed.size());
+                for (Airplane airplane : removed) {
+                    events.add(new ChangeEvent<>(airplane, null));
+                }
+                fireAirplaneChanges(events);
+            }
         }
     }
  
 
+    /**
+     * Applies the edits someone else made to the CSV file since it was last read (see DataFileWatcher).
+     * Rows are compared by hash with the previous read, so only new or edited rows are parsed; a row
+     * whose make/model disappeared from the file removes that airplane. All changes are journaled and
+     * then reported to the listeners and the change stream as one batch. Airplanes that are already
+     * equal to their row are left alone. The first call only remembers the file and changes nothing.
+     * Holds the manager's lock like every other change, so it is safe to call from the watcher thread.
+     * @return the number of airplanes added, modified or removed
+     */
+    public synchronized int reloadFromFile() {
+        Map<Long, String> previous = csvRowKeys;
+        if (previous == null && journal.isCsvChangedOutside()) {
+            System.out.println(FILE_NAME + " was changed while loading; restart to apply that edit");
+        }
+        if (previous != null && journal.wroteCurrentCsv()) {
+            previous = null; // Our own compaction: the file matches the data, just remember its rows
+        }
+        String stamp = journal.getCsvStamp(); // Before reading, so an edit made during the read is seen again
+        CsvRowDiff<Airplane> diff;
+        try {
+            diff = CsvRowDiff.read(FILE_NAME, previous == null ? Map.of() : previous,
+                    AirplaneManager::parseAirplane, airplane -> makeModelKey(airplane.getMakeModel()));
+        } catch (IOException e) {
+            System.out.println("Error reloading airplanes: " + e.getMessage());
+            return 0;
+        }
+        csvRowKeys = diff.getRowKeys();
+        if (previous == null) {
+            return 0;
+        }
+
+        List<ChangeEvent<Airplane>> events = new ArrayList<>();
+        for (String key : diff.getRemovedKeys()) {
+            if (!airplanesByMakeModel.containsKey(key)) continue;
+            List<Airplane> removed = deleteAirplanes(key);
+            for (Airplane airplane : removed) {
+                events.add(new ChangeEvent<>(airplane, null));
+            }
+            journal.append(ChangeJournal.Op.REMOVE, removed.get(0).getMakeModel(), null);
+        }
+        for (Airplane airplane : diff.getChangedRecords()) {
+            Airplane existing = airplanesByMakeModel.get(makeModelKey(airplane.getMakeModel()));
+            if (existing == null) {
+                insertAirplane(airplane);
+                journal.append(ChangeJournal.Op.ADD, airplane.getMakeModel(), toCsvRow(airplane));
+            } else if (!toCsvRow(existing).equals(toCsvRow(airplane))) {
+                replaceAirplane(existing, airplane);
+                journal.append(ChangeJournal.Op.MODIFY, existing.getMakeModel(), toCsvRow(airplane));
+            } else {
+                continue;
+            }
+            events.add(new ChangeEvent<>(existing, airplane));
+        }
+        journal.setKnownCsvStamp(stamp); // From now on a compaction may replace the file
+        if (events.isEmpty()) {
+            return 0;
+        }
+        journal.compactIfNeeded(this::getAirplanes, AirplaneManager::toCsvRow);
+        fireAirplaneChanges(events);
+        return events.size();
+    }
+
     /**
      * Loads airplane data from a CSV or text file.
      * Handles file parsing, data conversion, and basic validation
@@ -648,72 +866,251 @@ public class AirplaneManager {
      */
     private List<Airplane> loadAirplanes() {
         List<Airplane> loadedAirplanes = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_NAME))) {
-            String line;
-            boolean firstLine = true; // Flag to identify and skip header rows
-            while ((line = reader.readLine()) != null) {
-                // Skip CSV header row
-                if (firstLine) {
-                    firstLine = false;
-                    continue;
-                }
-                
-                // Skip comment lines or empty lines for better file reading
-                if (line.trim().startsWith("//") || line.trim().isEmpty()) {
-                    continue;
-                }
-
-                // Parse CSV format - Split line by comma separator
-                String[] parts = line.split(",");
-                if (parts.length >= 6) { // Make sure we have all required fields
-                    try {
-                        // Parse each field
-                        String makeModel = parts[0].trim();
-                        String planeType = parts[1].trim();
-                        
-                        // Parse numeric values
-                        Double fuelType = Double.parseDouble(parts[2].trim());
-                        double fuelBurnRate = Double.parseDouble(parts[3].trim());
-                        double fuelCapacity = Double.parseDouble(parts[4].trim());
-                        double airspeed = Double.parseDouble(parts[5].trim());
-
-                        // Create a new Airplane object and add it to the list
-                        loadedAirplanes.add(new Airplane(makeModel, planeType, fuelType, 
-                                                        fuelBurnRate, fuelCapacity, airspeed));
-                    } catch (NumberFormatException e) {
-                        System.out.println("Error parsing number in line: " + line);
-                    }
+        // The reader skips the header row, comment lines and empty lines, and handles quoted fields
+        try (Reader reader = new FileReader(FILE_NAME)) {
+            CsvReader.read(reader, true, row -> {
+                Airplane airplane = parseAirplane(row);
+                if (airplane != null) {
+                    loadedAirplanes.add(airplane);
                 }
-            }
+            });
         } catch (IOException e) {
             System.out.println("Error loading airplanes: " + e.getMessage());
         }
-        return loadedAirplanes;
+        return replayJournal(loadedAirplanes);
     }
-    
+
+    /**
+     * Parses one CSV record into an airplane.
+     * @return the airplane, or null (the line is printed) if the record is incomplete or a number cannot be parsed
+     */
+    private static Airplane parseAirplane(CsvReader.Row row) {
+        if (row.size() < 6) { // Make sure we have all required fields
+            return null;
+        }
+        try {
+            // Parse each field
+            String makeModel = row.getString(0).trim();
+            String planeType = row.getString(1).trim();
+
+            // Parse numeric values (straight from the reader's buffer; surrounding spaces are ignored)
+            Double fuelType = row.getDouble(2);
+            double fuelBurnRate = row.getDouble(3);
+            double fuelCapacity = row.getDouble(4);
+            double airspeed = row.getDouble(5);
+
+            // Create a new Airplane object
+            return new Airplane(makeModel, planeType, fuelType, fuelBurnRate, fuelCapacity, airspeed);
+        } catch (NumberFormatException e) {
+            System.out.println("Error parsing number in line " + row.getLineNumber() + ": " + row);
+            return null;
+        }
+    }
+
     /**
-     * Saves the airplane data to a CSV or text file.
+     * Parses a single CSV line (a journal record) into an airplane.
+     * @return the airplane, or null if the line cannot be parsed
      */
-    private void saveAirplanes() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(FILE_NAME, false))) { // false = overwrite file
-            // Write CSV header row with column names for readability and data structure documentation
-            // This will help anyone who reads the file to understand the data structure.
-            writer.println("Make and Model,Plane Type,Fuel Type,Fuel Burn Rate,Fuel Capacity,Airspeed");
-
-            // Iterate through the collection and write each airplane as a CSV row.
-            for (Airplane airplane : airplanes) {
-                writer.println(airplane.getMakeModel() + ","            // Make and model of the airplane
-                        + airplane.getPlaneType() + ","                 // Type of airplane (Jet, Prop, TurboProp)
-                        + airplane.getFuelType() + ","                  // Type of fuel used (1=AVGAS, 2=JetA)
-                        + airplane.getFuelBurnRate() + ","              // Fuel consumption rate in liters per hour
-                        + airplane.getFuelCapacity() + ","              // Total fuel capacity in liters
-                        + airplane.getAirspeed());                      // Cruising airspeed in knots
-            }
-            // File is automatically closed by try-with-resources.
+    private static Airplane parseAirplane(String line) {
+        Airplane[] parsed = new Airplane[1];
+        try {
+            CsvReader.read(new StringReader(line), false, row -> parsed[0] = parseAirplane(row));
         } catch (IOException e) {
-            // Log any file writing errors but allow the program to continue.
-            System.out.println("Error saving airplanes: " + e.getMessage());
-            // NOTE: Data will remain in memory even if the save fails.
+            // Cannot happen when reading from a String
+        }
+        return parsed[0];
+    }
+
+    /**
+     * Applies the journal records on top of the airplanes read from the CSV.
+     * Works on slots (null = removed) with a make/model -> slot map, so replay is linear in the
+     * number of records. Each record is applied as an assignment (see ChangeJournal): an add or
+     * modify replaces the entries with its old and its new make/model, so an add for an existing
+     * make/model simply overwrites it, and replaying records the CSV already contains changes nothing.
+     */
+    private List<Airplane> replayJournal(List<Airplane> loadedAirplanes) {
+        List<Airplane> slots = new ArrayList<>(loadedAirplanes);
+        Map<String, Integer> slotsByMakeModel = new HashMap<>();
+        for (int i = 0; i < slots.size(); i++) {
+            slotsByMakeModel.putIfAbsent(makeModelKey(slots.get(i).getMakeModel()), i);
+        }
+
+        journal.replay((op, key, row) -> {
+            Integer slot = slotsByMakeModel.remove(makeModelKey(key));
+            if (op == ChangeJournal.Op.REMOVE) {
+                if (slot != null) slots.set(slot, null);
+                return;
+            }
+            Airplane airplane = parseAirplane(row);
+            if (airplane == null) {
+                if (slot != null) slotsByMakeModel.put(makeModelKey(key), slot); // Keep the old entry
+                return;
+            }
+            // The record also owns its new code: a rename that is already in the CSV (compacted, but the
+            // journal not trimmed yet) finds the renamed entry here instead of adding a second one.
+            Integer renamed = slotsByMakeModel.remove(makeModelKey(airplane.getMakeModel()));
+            if (slot == null) {
+                slot = renamed;
+            } else if (renamed != null && !renamed.equals(slot)) {
+                slots.set(renamed, null);
+            }
+            if (slot == null) {
+                slot = slots.size();
+                slots.add(airplane);
+            } else {
+                slots.set(slot, airplane);
+            }
+            slotsByMakeModel.put(makeModelKey(airplane.getMakeModel()), slot);
+        });
+
+        slots.removeIf(Objects::isNull);
+        return slots;
+    }
+    
+    /*
+     * Helper methods that keep the make/model hash index in sync with the airplane list.
+     * Make/model is compared case-insensitively, so the index key is the upper-case name.
+     */
+    private static String makeModelKey(String makeModel) {
+        return makeModel == null ? "" : makeModel.toUpperCase(Locale.ROOT);
+    }
+
+    // Adds an airplane to the index. If the make/model is already taken, the first airplane keeps it (like a list scan).
+    private void indexAirplane(Airplane airplane) {
+        Airplane existing = airplanesByMakeModel.putIfAbsent(makeModelKey(airplane.getMakeModel()), airplane);
+        if (existing != null && existing != airplane) {
+            sharedMakeModels++;
+        }
+    }
+
+    // Removes an airplane from the index (call after removing it from the list).
+    private void unindexAirplane(Airplane airplane) {
+        String key = makeModelKey(airplane.getMakeModel());
+        if (airplanesByMakeModel.get(key) != airplane) {
+            if (sharedMakeModels > 0) sharedMakeModels--; // It was a duplicate that was never indexed
+            return;
         }
+        airplanesByMakeModel.remove(key);
+
+        // Only when names are shared can another airplane take over this name; otherwise no scan is needed.
+        if (sharedMakeModels > 0) {
+            for (Airplane other : slots) {
+                if (other != null && makeModelKey(other.getMakeModel()).equals(key)) {
+                    airplanesByMakeModel.put(key, other);
+                    sharedMakeModels--;
+                    break;
+                }
+            }
+        }
+    }
+
+    /*
+     * Helper methods that keep the list, its position index and the make/model index in sync.
+     * Every airplane knows its slot, so adding, replacing and removing one never scans the list.
+     * Removed slots are left empty (the order of the others does not change) and squeezed out once
+     * they make up half of the list.
+     */
+
+    // Adds an airplane to the end of the list and to both indexes.
+    private void insertAirplane(Airplane airplane) {
+        if (slotsByAirplane.putIfAbsent(airplane, slots.size()) != null) {
+            return; // The same object is already in the list
+        }
+        slots.add(airplane);
+        indexAirplane(airplane);
+        airplanes = null;
+    }
+
+    // Removes every airplane with this (upper-case) make/model and returns them.
+    private List<Airplane> deleteAirplanes(String key) {
+        List<Airplane> removed = new ArrayList<>();
+        Airplane indexed = airplanesByMakeModel.get(key);
+        if (indexed == null) {
+            return removed;
+        }
+        if (sharedMakeModels == 0) {
+            removed.add(indexed); // The only one with this name
+        } else {
+            for (Airplane airplane : slots) {
+                if (airplane != null && makeModelKey(airplane.getMakeModel()).equals(key)) removed.add(airplane);
+            }
+        }
+        for (Airplane airplane : removed) {
+            slots.set(slotsByAirplane.remove(airplane), null);
+            removedSlots++;
+        }
+        for (Airplane airplane : removed) {
+            unindexAirplane(airplane);
+        }
+        airplanes = null;
+        if (removedSlots > slots.size() / 2) {
+            compactSlots();
+        }
+        return removed;
+    }
+
+    // Drops the empty slots and renumbers the rest (same order).
+    private void compactSlots() {
+        int next = 0;
+        for (Airplane airplane : slots) {
+            if (airplane == null) continue;
+            slots.set(next, airplane);
+            slotsByAirplane.put(airplane, next);
+            next++;
+        }
+        slots.subList(next, slots.size()).clear();
+        removedSlots = 0;
+    }
+
+    // Replaces an airplane in the list (same position) and in the index.
+    private void replaceAirplane(Airplane oldAirplane, Airplane updatedAirplane) {
+        int slot = slotsByAirplane.remove(oldAirplane);
+        slots.set(slot, updatedAirplane);
+        slotsByAirplane.put(updatedAirplane, slot);
+        airplanes = null;
+        String oldKey = makeModelKey(oldAirplane.getMakeModel());
+        if (oldKey.equals(makeModelKey(updatedAirplane.getMakeModel()))) {
+            airplanesByMakeModel.replace(oldKey, oldAirplane, updatedAirplane); // Same name: just swap the entry
+        } else {
+            unindexAirplane(oldAirplane);
+            indexAirplane(updatedAirplane);
+        }
+    }
+
+    // Tells every registered listener about one changed airplane.
+    private void fireAirplaneChanged(Airplane before, Airplane after) {
+        fireAirplaneChanges(List.of(new ChangeEvent<>(before, after)));
+    }
+
+    // Tells the listeners about each change of one operation, then publishes them as one batch on the change stream.
+    private void fireAirplaneChanges(List<ChangeEvent<Airplane>> events) {
+        for (ChangeEvent<Airplane> event : events) {
+            for (AirplaneChangeListener listener : listeners) {
+                listener.airplaneChanged(event.getBefore(), event.getAfter());
+            }
+        }
+        changeStream.publish(events);
+    }
+
+    /**
+     * Saves one change to the airplane data.
+     * Instead of rewriting the whole CSV file, the change is appended to the journal. The journal
+     * folds itself back into the CSV file in the background once it grows large (see ChangeJournal).
+     */
+    private void saveChange(ChangeJournal.Op op, String key, Airplane airplane) {
+        journal.append(op, key, airplane == null ? null : toCsvRow(airplane));
+        journal.compactIfNeeded(this::getAirplanes, AirplaneManager::toCsvRow);
+    }
+
+    /**
+     * Formats an airplane as one row of the CSV file.
+     */
+    private static String toCsvRow(Airplane airplane) {
+        return CsvReader.quote(airplane.getMakeModel()) + ","      // Make and model of the airplane (quoted if it contains a comma)
+                + CsvReader.quote(airplane.getPlaneType()) + ","   // Type of airplane (Jet, Prop, TurboProp)
+                + airplane.getFuelType() + ","                     // Type of fuel used (1=AVGAS, 2=JetA)
+                + airplane.getFuelBurnRate() + ","                 // Fuel consumption rate in liters per hour
+                + airplane.getFuelCapacity() + ","                 // Total fuel capacity in liters
+                + airplane.getAirspeed();                          // Cruising airspeed in knots
     }
 }
@@ -1,20 +1,24 @@
 package src;
 import java.util.Collection;
-import java.util.List;
 
 /**
  * represents airports with attributes
+ * Numeric attributes are kept and returned as primitive doubles (missing values are stored as NaN),
+ * so an airport is a single object and reading a coordinate does not box. Hot loops should use
+ * AirportTable, which numbers the airports and adds the radians and sin/cos of their coordinates
+ * in primitive arrays. Apart from a packed copy of the fuel masks, the values stay here only.
  */
 public class Airport {
     private String airportName;
-    private Double latitude;
-    private Double longitude;
-    private Double radioFrequencies;
+    private double latitude;
+    private double longitude;
+    private double radioFrequencies;
     private String regionState;
     private String regionAbbr;
     private String city;
     private String ICAO;
-    private Double fuelTypes;
+    private double fuelTypes;
+    private int fuelMask; // fuelTypes decoded once into FuelTypes bits
 
     /**
      * Constructor for airport class
@@ -28,35 +32,44 @@ public class Airport {
      */
     public Airport(String airportName, Double latitude, Double longitude, Double radioFrequencies, String regionState, String regionAbbr, String city, String ICAO, Double fuelTypes) {
         this.airportName = airportName;
-        this.latitude = latitude;
-        this.longitude = longitude;
-        this.radioFrequencies = radioFrequencies;
+        this.latitude = valueOrNaN(latitude);
+        this.longitude = valueOrNaN(longitude);
+        this.radioFrequencies = valueOrNaN(radioFrequencies);
         this.regionState = regionState;
         this.regionAbbr = regionAbbr;
         this.city = city;
         this.ICAO = ICAO;
-        this.fuelTypes = fuelTypes;
+        this.fuelTypes = valueOrNaN(fuelTypes);
+        this.fuelMask = FuelTypes.decode(this.fuelTypes);
+    }
+
+    private static double valueOrNaN(Double value) {
+        return value == null ? Double.NaN : value;
     }
 
     //Getter methods
     public String getAirportName() {return airportName;}
-    public Double getLatitude() {return latitude;}
-    public Double getLongitude() {return longitude;}
-    public Double getRadioFrequencies() {return radioFrequencies;}
+    public double getLatitude() {return latitude;}
+    public double getLongitude() {return longitude;}
+    public double getRadioFrequencies() {return radioFrequencies;}
     public String getRegionState() {return regionState;}
     public String getRegionAbbr() {return regionAbbr;}
     public String getCity() {return city;}
     public String getICAO() {return ICAO;}
-    public Double getFuelTypes() {return fuelTypes;}
+    public double getFuelTypes() {return fuelTypes;}
+    public int getFuelMask() {return fuelMask;}
 
     /**
      * Retrieves a collection of available fuel types at the airport.
-     * @return A collection of available fuel types.
+     * @return A collection of available fuel types ("Avgas", "Jet A"), decoded from the Fuel Types column.
      */
     public Collection<String> getAvailableFuelTypes() {
-        // Example implementation, assuming fuelTypes is a bitmask or similar representation
-        // Replace with actual logic as per your requirements
-        return List.of("Jet A", "100LL", "Avgas");
+        return FuelTypes.names(fuelMask);
+    }
+
+    // Returns true if the airport sells any of the fuels in the mask (see FuelTypes)
+    public boolean hasFuel(int mask) {
+        return (fuelMask & mask) != 0;
     }
 }
 
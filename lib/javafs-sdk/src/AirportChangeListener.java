@@ -0,0 +1,17 @@
+package src;
+
+/**
+ * Receives a callback from AirportManager every time an airport is added, modified or removed.
+ * Used by caches and indexes that are built on top of the airport list.
+ * Listeners run on the writer's thread before the write returns; for asynchronous, batched
+ * delivery use the manager's ChangeStream instead.
+ */
+public interface AirportChangeListener {
+
+    /**
+     * Called after the airport list has been changed.
+     * @param before: the airport as it was, or null if it was just added
+     * @param after: the airport as it is now, or null if it was just removed
+     */
+    void airportChanged(Airport before, Airport after);
+}
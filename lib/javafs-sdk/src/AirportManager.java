@@ -5,20 +5,114 @@ package src;
 
 import java.io.*;
 import java.util.*;
-
-public class AirportManager {
-
-    private final List<Airport> airports;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/*
+ * Readers and writers can use the manager from any thread at the same time.
+ * All airports live in an immutable Snapshot, and every write publishes a new Snapshot with
+ * one volatile write. Readers (searches, FlightPlanning, RouteCache, ...) pin one snapshot for
+ * a whole query and never take a lock. Writes are queued and applied by whichever writer holds
+ * the write lock, so concurrent writes share one copy of the list and one publish (group commit).
+ * The writer also builds the snapshot's table and spatial index before publishing it, starting from
+ * the previous snapshot's (see AirportTable.next), so a reader never waits for them.
+ */
+public class AirportManager implements AutoCloseable {
+
+    private volatile Snapshot snapshot;       // Current version of the data, replaced (never changed) by writes
+    private final Queue<Change> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock(); // Not a monitor: writers may be virtual threads
+    private final List<AirportChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ChangeStream<Airport> changeStream = new ChangeStream<>(); // Asynchronous, one batch per write
     private static final String FILE_NAME = "Airport_Database.csv";
+    private static final String CSV_HEADER = "Airport Name,Latitude,Longitude,Frequency,Region_State,Region_Abbr.,City,ICAO,Fuel Types";
+    private final String fileName;
+    private final ChangeJournal journal; // Edits are appended here, see Batch
+    private volatile Map<Long, String> csvRowKeys; // Row hash -> ICAO key of the CSV as last read, see reloadFromFile
 
     // Constructor for AirportManager
     public AirportManager() {
-        this.airports = loadAirports();
+        this(FILE_NAME);
     }
 
-    // Returns list of airports
+    // Loads the airports from another file with the same layout (used by the benchmarks for synthetic data)
+    AirportManager(String fileName) {
+        this.fileName = fileName;
+        this.journal = ChangeJournal.open(fileName, CSV_HEADER);
+        List<Airport> loadedAirports = loadAirports();
+        AirportTable empty = AirportTable.of(List.of());
+        Batch initial = new Batch(new Snapshot(List.of(), ShardedMap.hashed(), 0, new AirportTextIndex(loadedAirports),
+                empty, new AirportSpatialIndex(empty), 0));
+        for (Airport airport : loadedAirports) {
+            if (initial.append(airport)) {
+                initial.indexAirport(airport);
+            }
+        }
+        this.snapshot = initial.toSnapshot();
+    }
+
+    // Returns the current version of the airport data. It never changes, so a query can use it from start to end.
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Returns the CSV file the airports are loaded from and saved to
+    String getFileName() {
+        return fileName;
+    }
+
+    // Writes out pending journal records and stops the journal's background thread; do not edit afterwards
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    // Returns list of airports (read-only; it is the list of the current snapshot)
     public List<Airport> getAirports() {
-        return airports;
+        return snapshot.getAirports();
+    }
+
+    /*
+     * Registers a listener that is told about every added, modified or removed airport.
+     * Returns the snapshot the listener's first event will follow, so a listener can build its
+     * starting state from it without missing or repeating a change.
+     */
+    public Snapshot addChangeListener(AirportChangeListener listener) {
+        writeLock.lock();
+        try {
+            listeners.add(listener);
+            return snapshot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Unregisters a listener added with addChangeListener
+    public void removeChangeListener(AirportChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Returns the asynchronous stream of airport changes; each write (or bulk import) is one batch
+    public ChangeStream<Airport> getChangeStream() {
+        return changeStream;
+    }
+
+    /*
+     * Returns a column-oriented (primitive array) copy of the current airports for loops by row index.
+     * Row i is getAirports().get(i). The table is built with the snapshot, before it is published.
+     */
+    public AirportTable getTable() {
+        return snapshot.getTable();
+    }
+
+    /*
+     * Returns a spatial index over the current airports for FlightPlanning.
+     * The index shares its rows with getTable() and is built with the snapshot in the same way.
+     */
+    public AirportSpatialIndex getSpatialIndex() {
+        return snapshot.getSpatialIndex();
     }
 
     /*
@@ -32,8 +126,7 @@ public class AirportManager {
         // Case 1: If we receive an Airport object directly, add it to the list and save the file. 
         if (airportOrScanner instanceof Airport) {
             Airport airport = (Airport) airportOrScanner;
-            airports.add(airport);
-            saveAirports();
+            write(batch -> batch.insertAirport(airport));
         } 
         // Case 2: If we receive a Scanner object, we will prompt the user for input.
         else if (airportOrScanner instanceof Scanner) {
@@ -49,10 +142,8 @@ public class AirportManager {
                 String ICAO = getStringInput(scanner, "Enter ICAO Code: ");
 
                 // Check if ICAO already exists.
-                for (Airport existingAirport : airports) {
-                    if (existingAirport.getICAO().equalsIgnoreCase(ICAO)) {
-                        throw new IllegalArgumentException("An airport with ICAO code " + ICAO + " already exists");
-                    }
+                if (snapshot.searchAirport(ICAO) != null) {
+                    throw new IllegalArgumentException("An airport with ICAO code " + ICAO + " already exists");
                 }
 
                 // Collect numeric inputs with validation of range.
@@ -71,8 +162,7 @@ public class AirportManager {
                 Airport newAirport = new Airport(airportName, latitude, longitude,
                         radioFrequencies, regionState, regionAbbr, city,
                         ICAO, fuelTypes);
-                airports.add(newAirport);
-                saveAirports();
+                write(batch -> batch.insertAirport(newAirport));
                 System.out.println("\nAirport added successfully!");
 
             // Handle exceptions for invalid input
@@ -83,6 +173,73 @@ public class AirportManager {
         }
     }
 
+    /*
+     * Adds many airports at once (for example a vendor feed) and saves them with a single journal write.
+     * Every airport is validated and checked for a duplicate ICAO code in one hashed pass, without
+     * holding the write lock. The accepted airports are then published together in one new snapshot,
+     * so readers see either none or all of them.
+     *
+     * @param newAirports - the airports to add, in order
+     * @return the airports that were added, and the rejected ones with the reason (missing fields,
+     *         coordinates out of range, unknown fuel types, or an ICAO code that is already taken)
+     */
+    public ImportResult<Airport> addAirports(Iterable<Airport> newAirports) {
+        if (newAirports == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        ImportResult<Airport> result = new ImportResult<>();
+        Snapshot base = snapshot;
+        Map<String, Integer> rowsByICAO = new HashMap<>(); // Upper-case ICAO -> first row of the import that uses it
+        List<Airport> candidates = new ArrayList<>();
+        List<Integer> candidateRows = new ArrayList<>();
+        int row = 0;
+        for (Airport airport : newAirports) {
+            row++;
+            String reason = validateAirport(airport);
+            if (reason == null) {
+                Integer firstRow = rowsByICAO.putIfAbsent(icaoKey(airport.getICAO()), row);
+                if (firstRow != null) {
+                    reason = "Duplicate ICAO code " + airport.getICAO() + " (same as row " + firstRow + ")";
+                } else if (base.searchAirport(airport.getICAO()) != null) {
+                    reason = "An airport with ICAO code " + airport.getICAO() + " already exists";
+                }
+            }
+            if (reason != null) {
+                result.reject(row, airport, reason);
+            } else {
+                candidates.add(airport);
+                candidateRows.add(row);
+            }
+        }
+
+        // Only codes added by other writers since the check above can still collide; the batch checks those.
+        write(batch -> batch.insertAirports(candidates, candidateRows, result));
+        result.sortRejections();
+        return result;
+    }
+
+    // Same as addAirports above, for a stream of airports (consumed once)
+    public ImportResult<Airport> addAirports(Stream<Airport> newAirports) {
+        if (newAirports == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        return addAirports((Iterable<Airport>) newAirports::iterator);
+    }
+
+    // Returns why an airport cannot be imported, or null if it is valid.
+    private static String validateAirport(Airport airport) {
+        if (airport == null) return "Airport is missing";
+        if (airport.getICAO() == null || airport.getICAO().isBlank()) return "Missing ICAO code";
+        if (airport.getAirportName() == null || airport.getAirportName().isBlank()) return "Missing airport name";
+        double latitude = airport.getLatitude();
+        double longitude = airport.getLongitude();
+        double fuelTypes = airport.getFuelTypes();
+        if (!(latitude >= -90 && latitude <= 90)) return "Latitude must be between -90 and 90"; // Also rejects NaN
+        if (!(longitude >= -180 && longitude <= 180)) return "Longitude must be between -180 and 180";
+        if (fuelTypes != 1 && fuelTypes != 2 && fuelTypes != 3) return "Fuel types must be 1 (AVGAS), 2 (Jet A) or 3 (both)";
+        return null;
+    }
+
     /*
      * This is the handler method for validation of the string inputs used in addAirport.
      * If the input is empty, it throws an IllegalArgumentException.
@@ -151,17 +308,12 @@ public class AirportManager {
             Airport updatedAirport = (Airport) additionalParams[0];
 
             // Find and replace the airport with matching ICAO.
-            for (int i = 0; i < airports.size(); i++) {
-                if (airports.get(i).getICAO().equalsIgnoreCase(ICAOID)) {
-                    airports.set(i, updatedAirport);
-                    saveAirports();
-                    break;
-                }
-            }
+            write(batch -> batch.replaceAirport(ICAOID, updatedAirport));
         } 
         // Case 2: Interactive modification via UI.
         else if (param1 instanceof Scanner) {
             Scanner scanner = (Scanner) param1;
+            List<Airport> airports = getAirports(); // Numbers shown to the user refer to this version of the list.
             int start = 0; // Starting index for displaying airports.
             int batchSize = 10; // Number of airports to display at a time.
             boolean moreAirports = true; // Flag to control the loop.
@@ -194,13 +346,7 @@ public class AirportManager {
                         String ICAO = getStringInput(scanner, "Enter ICAO code to search: ");
 
                         // Search for matching airport.
-                        Airport foundAirport = null;
-                        for (Airport airport : airports) {
-                            if (airport.getICAO().equalsIgnoreCase(ICAO)) {
-                                foundAirport = airport;
-                                break;
-                            }
-                        }
+                        Airport foundAirport = snapshot.searchAirport(ICAO);
 
                         if (foundAirport == null) {
                             System.out.println("No airport found with ICAO code: " + ICAO);
@@ -260,10 +406,9 @@ public class AirportManager {
 
             // If the ICAO changed, check for duplicates.
             if (!newICAO.equalsIgnoreCase(ICAO)) {
-                for (Airport existingAirport : airports) {
-                    if (existingAirport != airport && existingAirport.getICAO().equalsIgnoreCase(newICAO)) {
-                        throw new IllegalArgumentException("An airport with ICAO code " + newICAO + " already exists");
-                    }
+                Airport existingAirport = snapshot.searchAirport(newICAO);
+                if (existingAirport != null && existingAirport != airport) {
+                    throw new IllegalArgumentException("An airport with ICAO code " + newICAO + " already exists");
                 }
             }
 
@@ -283,16 +428,8 @@ public class AirportManager {
                     radioFrequencies, regionState, regionAbbr, city,
                     newICAO, fuelTypes);
 
-            // Update the airport in the list.
-            for (int i = 0; i < airports.size(); i++) {
-                if (airports.get(i).getICAO().equalsIgnoreCase(ICAO)) {
-                    airports.set(i, updatedAirport);
-                    break;
-                }
-            }
-
-            // Save changes to the file.
-            saveAirports();
+            // Update the airport in the list and save the change to the file.
+            write(batch -> batch.replaceAirport(ICAO, updatedAirport));
             System.out.println("\nAirport updated successfully!");
 
         } catch (IllegalArgumentException e) {
@@ -483,19 +620,11 @@ public class AirportManager {
                     return null;
             }
 
-            // Step 4: Perform search with partial matching. 
-            for (Airport airport : airports) {
-                if (searchByICAO) {
-                    // Case-insensitive, partial match for ICAO.
-                    if (airport.getICAO().toUpperCase().contains(searchTerm)) {
-                        matchingAirports.add(airport);
-                    }
-                } else {
-                    // Case-insensitive, partial match for Airport Name.
-                    if (airport.getAirportName().toLowerCase().contains(searchTerm)) {
-                        matchingAirports.add(airport);
-                    }
-                }
+            // Step 4: Perform search with partial matching (case-insensitive) through the trigram index.
+            if (searchByICAO) {
+                matchingAirports = snapshot.findAirports(AirportTextIndex.Field.ICAO, searchTerm);
+            } else {
+                matchingAirports = snapshot.findAirports(AirportTextIndex.Field.NAME, searchTerm);
             }
 
             // Step 5: Process search results based on number of matches.
@@ -576,17 +705,17 @@ public class AirportManager {
         else if (searchParam instanceof String) {
             String searchValue = (String) searchParam;
 
-            // Primary search by exact ICAO match (case-insensitve).
-            for (Airport airport : airports) {
-                if (airport.getICAO().equalsIgnoreCase(searchValue)) {
-                    return airport;
-                }
+            // Primary search by exact ICAO match (case-insensitve), using the hash index.
+            Snapshot current = snapshot;
+            Airport byICAO = current.searchAirport(searchValue);
+            if (byICAO != null) {
+                return byICAO;
             }
 
             // Secondary search by exact Airport Name match (if enabled by flag).
             // This will only run if the first program is false (or non-Boolean).
             if (additionalParams.length > 0 && additionalParams[0] instanceof Boolean && !(Boolean) additionalParams[0]) {
-                for (Airport airport : airports) {
+                for (Airport airport : current.airports) {
                     if (airport.getAirportName().equalsIgnoreCase(searchValue)) {
                         return airport;
                     }
@@ -598,6 +727,14 @@ public class AirportManager {
         return null;
     }
 
+    /*
+     * Partial, case-insensitive search on one field (ICAO, name or city) without any prompts.
+     * Returns every matching airport in list order (of the current snapshot).
+     */
+    public List<Airport> findAirports(AirportTextIndex.Field field, String query) {
+        return snapshot.findAirports(field, query);
+    }
+
     /*
      * Removes an airport with two functionalities:
      * 1. Interactive removal with user confirmation.
@@ -636,92 +773,502 @@ public class AirportManager {
         // Case 2: Programmatic removal using ICAO ID.
         else if (scannerOrIcaoId instanceof String) {
             String ICAOID = (String) scannerOrIcaoId;
-            airports.removeIf(airport -> airport.getICAO().equalsIgnoreCase(ICAOID));
-            saveAirports();
+            if (snapshot.searchAirport(ICAOID) == null) {
+                return; // Nothing to remove
+            }
+            write(batch -> batch.removeAirports(ICAOID));
         }
     }
     
     /*
      * Loads airport data from a CSV or text file. (Please DO NOT change "FILE_NAME", everything WILL BREAK.
      *                                              If you need to change the file, please structure the same way as "Airport_Database.csv")
-     * Handles file parsing, data conversion, and basic validation
+     * Handles file parsing, data conversion, and basic validation.
+     * The binary snapshot of the CSV is used instead when it is up to date (see AirportSnapshot),
+     * and rebuilt from the CSV when it is not. Edits made since the last compaction are then
+     * replayed from the journal.
      */
     private List<Airport> loadAirports() {
+        List<Airport> loadedAirports = AirportSnapshot.read(fileName);
+        if (loadedAirports == null) {
+            loadedAirports = loadAirportsFromCsv(fileName);
+            if (new File(fileName).exists()) {
+                AirportSnapshot.write(fileName, loadedAirports);
+            }
+        }
+        return replayJournal(loadedAirports);
+    }
+
+    // Reads every airport row of a CSV file laid out like "Airport_Database.csv".
+    static List<Airport> loadAirportsFromCsv(String fileName) {
         List<Airport> loadedAirports = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_NAME))) {
-            String line;
-            boolean firstLine = true; // Flag to identify and skip header rows
-            while ((line = reader.readLine()) != null) {
-                // Skip CSV header row
-                if (firstLine) {
-                    firstLine = false;
-                    continue;
+        // The reader skips the header row, comment lines and empty lines, and handles quoted fields.
+        try (Reader reader = new FileReader(fileName)) {
+            CsvReader.read(reader, true, row -> {
+                Airport airport = parseAirport(row);
+                if (airport != null) {
+                    loadedAirports.add(airport);
                 }
-                
-                // Skip comment lines or empty lines for better file reading.
-                if (line.trim().startsWith("//") || line.trim().isEmpty()) {
+            });
+        } catch (IOException e) {
+            System.out.println("Error loading airports: " + e.getMessage());
+        }
+        return loadedAirports;
+    }
+
+    /*
+     * Parses one CSV record into an airport.
+     * Returns null (and prints the line) if the record is incomplete or a number cannot be parsed.
+     */
+    private static Airport parseAirport(CsvReader.Row row) {
+        if (row.size() < 9) { // Make sure we have all fields
+            return null;
+        }
+        try {
+            // Parse for each field
+            String airportName = row.getString(0);
+
+            // Numbers are parsed straight from the reader's buffer, without a String per field
+            Double latitude = row.getDouble(1);
+            Double longitude = row.getDouble(2);
+            Double radioFrequencies = row.getDouble(3);
+
+            // Parse the rest of the fields
+            String regionState = row.getString(4);
+            String regionAbbr = row.getString(5);
+            String city = row.getString(6);
+            String ICAO = row.getString(7);
+            Double fuelTypes = row.getDouble(8);
+
+            // Create a new Airport object
+            return new Airport(airportName, latitude, longitude, radioFrequencies, regionState,
+                    regionAbbr, city, ICAO, fuelTypes);
+        } catch (NumberFormatException e) {
+            System.out.println("Error parsing number in line " + row.getLineNumber() + ": " + row);
+            return null;
+        }
+    }
+
+    // Parses a single CSV line (a journal record) into an airport, or returns null.
+    private static Airport parseAirport(String line) {
+        Airport[] parsed = new Airport[1];
+        try {
+            CsvReader.read(new StringReader(line), false, row -> parsed[0] = parseAirport(row));
+        } catch (IOException e) {
+            // Cannot happen when reading from a String
+        }
+        return parsed[0];
+    }
+
+    /*
+     * Applies the journal records on top of the airports read from the CSV.
+     * Works on slots (null = removed) with a code -> slot map, so replay is linear in the
+     * number of records. Each record is applied as an assignment (see ChangeJournal): an add or
+     * modify replaces the entries with its old and its new code, so an add for an existing code simply
+     * overwrites it, and replaying records the CSV already contains changes nothing.
+     */
+    private List<Airport> replayJournal(List<Airport> loadedAirports) {
+        List<Airport> slots = new ArrayList<>(loadedAirports);
+        Map<String, Integer> slotsByICAO = new HashMap<>();
+        for (int i = 0; i < slots.size(); i++) {
+            slotsByICAO.putIfAbsent(icaoKey(slots.get(i).getICAO()), i);
+        }
+
+        journal.replay((op, key, row) -> {
+            Integer slot = slotsByICAO.remove(icaoKey(key));
+            if (op == ChangeJournal.Op.REMOVE) {
+                if (slot != null) slots.set(slot, null);
+                return;
+            }
+            Airport airport = parseAirport(row);
+            if (airport == null) {
+                if (slot != null) slotsByICAO.put(icaoKey(key), slot); // Keep the old entry
+                return;
+            }
+            // The record also owns its new code: a rename that is already in the CSV (compacted, but the
+            // journal not trimmed yet) finds the renamed entry here instead of adding a second one.
+            Integer renamed = slotsByICAO.remove(icaoKey(airport.getICAO()));
+            if (slot == null) {
+                slot = renamed;
+            } else if (renamed != null && !renamed.equals(slot)) {
+                slots.set(renamed, null);
+            }
+            if (slot == null) {
+                slot = slots.size();
+                slots.add(airport);
+            } else {
+                slots.set(slot, airport);
+            }
+            slotsByICAO.put(icaoKey(airport.getICAO()), slot);
+        });
+
+        slots.removeIf(Objects::isNull);
+        return slots;
+    }
+
+    private static String icaoKey(String ICAO) {
+        return ICAO == null ? "" : ICAO.toUpperCase(Locale.ROOT);
+    }
+
+    /*
+     * Applies the edits someone else made to the CSV file since it was last read (see DataFileWatcher).
+     * Rows are compared by hash with the previous read, so only new or edited rows are parsed; a row
+     * whose ICAO code disappeared from the file removes that airport. The changes go through one write:
+     * one new snapshot, one batch of events and journal records, so a restart sees the same data.
+     * Airports that are already equal to their row (for example our own edits) are left alone, and so
+     * are the table, spatial index, distance cache and stop matrix as far as the edited rows allow
+     * (see AirportTable.next): renaming one airport keeps them all, moving one rebuilds the index.
+     * The first call only remembers the file and changes nothing.
+     *
+     * @return the number of airports added, modified or removed
+     */
+    public int reloadFromFile() {
+        Map<Long, String> previous = csvRowKeys;
+        if (previous == null && journal.isCsvChangedOutside()) {
+            System.out.println(fileName + " was changed while loading; restart to apply that edit");
+        }
+        if (previous != null && journal.wroteCurrentCsv()) {
+            previous = null; // Our own compaction: the file matches the data, just remember its rows
+        }
+        String stamp = journal.getCsvStamp(); // Before reading, so an edit made during the read is seen again
+        CsvRowDiff<Airport> diff;
+        try {
+            diff = CsvRowDiff.read(fileName, previous == null ? Map.of() : previous,
+                    AirportManager::parseAirport, airport -> icaoKey(airport.getICAO()));
+        } catch (IOException e) {
+            System.out.println("Error reloading airports: " + e.getMessage());
+            return 0;
+        }
+        csvRowKeys = diff.getRowKeys();
+        if (previous == null) {
+            return 0;
+        }
+        int[] applied = new int[1];
+        write(batch -> {
+            applied[0] = batch.applyFileChanges(diff.getChangedRecords(), diff.getRemovedKeys());
+            journal.setKnownCsvStamp(stamp); // From now on a compaction may replace the file
+        });
+        return applied[0];
+    }
+
+    /*
+     * Queues one change and makes sure it is applied before returning.
+     * The first writer to get the lock applies every queued change (its own and those of writers
+     * waiting behind it) to one copy of the data, then publishes a single new snapshot.
+     */
+    private void write(Change change) {
+        pendingChanges.add(change);
+        writeLock.lock();
+        try {
+            if (pendingChanges.isEmpty()) {
+                return; // Another writer already applied it
+            }
+            Batch batch = new Batch(snapshot);
+            Change next;
+            while ((next = pendingChanges.poll()) != null) {
+                next.apply(batch);
+            }
+            if (batch.events.isEmpty()) {
+                return; // Nothing changed
+            }
+
+            Snapshot published = batch.toSnapshot();
+            snapshot = published;
+            journal.compactIfNeeded(() -> published.airports, AirportManager::toCsvRow);
+
+            // Listeners hear about the changes in order, after the new snapshot is visible.
+            for (Airport[] event : batch.events) {
+                for (AirportChangeListener listener : listeners) {
+                    listener.airportChanged(event[0], event[1]);
+                }
+            }
+            if (changeStream.hasSubscribers()) {
+                List<ChangeEvent<Airport>> events = new ArrayList<>(batch.events.size());
+                for (Airport[] event : batch.events) {
+                    events.add(new ChangeEvent<>(event[0], event[1]));
+                }
+                changeStream.publish(events); // Only queued here; subscribers run on their own threads
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // A queued write
+    private interface Change {
+        void apply(Batch batch);
+    }
+
+    /*
+     * Writable copy of a snapshot that queued changes are applied to (only used while holding the write lock).
+     * Every change is also made to the next version of the text index, appended to the journal and recorded as a listener event.
+     * The list is a plain copy of references; the ICAO and position indexes share their unchanged shards with the base
+     * (see ShardedMap). Every airport knows its position, so replacing and removing one never scans the list: removed
+     * airports leave an empty (null) entry, and toSnapshot squeezes those out once for the whole batch.
+     */
+    private final class Batch {
+        private final Snapshot base;
+        private final List<Airport> airports;
+        private final ShardedMap<String, Airport> airportsByICAO; // Upper-case ICAO -> airport, kept in sync with the list
+        private final ShardedMap<Airport, Integer> positions;     // Airport -> its index in the list, by identity
+        private int removedRows;                                  // Entries of the list emptied by removeAirports
+        private int sharedICAOs; // Airports whose ICAO was already taken when added (only possible programmatically)
+        private final long version;
+        private final List<Airport[]> events = new ArrayList<>(); // {before, after} per change
+        private final AirportTextIndex textIndex;  // Text index of the base snapshot (never changed)
+        private AirportTextIndex.Editor textEdits; // Started on the first change to the text index
+        private final BitSet replacedRows = new BitSet(); // Rows of the base whose airport was replaced
+
+        Batch(Snapshot base) {
+            this.base = base;
+            this.airports = new ArrayList<>(base.airports);
+            this.airportsByICAO = base.airportsByICAO.copy();
+            this.positions = base.table.rows().copy(); // The rows of the base table are the positions of its list
+            this.sharedICAOs = base.sharedICAOs;
+            this.textIndex = base.textIndex;
+            this.version = base.version + 1;
+        }
+
+        // Returns the editor for the new snapshot's text index
+        private AirportTextIndex.Editor text() {
+            if (textEdits == null) {
+                textEdits = textIndex.edit();
+            }
+            return textEdits;
+        }
+
+        // Builds the new snapshot with its table and spatial index, carrying forward what the changes left alone
+        Snapshot toSnapshot() {
+            AirportTextIndex text = textEdits == null ? textIndex : textEdits.build();
+            boolean rowsMoved = removedRows > 0;
+            if (rowsMoved) {
+                airports.removeIf(Objects::isNull); // Later rows move up, so the table is built anew
+            }
+            AirportTable table = rowsMoved ? AirportTable.of(airports) : base.table.next(airports, replacedRows);
+            AirportSpatialIndex spatialIndex = base.spatialIndex.next(table, rowsMoved ? null : replacedRows);
+            return new Snapshot(Collections.unmodifiableList(airports), airportsByICAO, sharedICAOs, text,
+                    table, spatialIndex, version);
+        }
+
+        // Adds an airport to the end of the list and to both indexes.
+        void insertAirport(Airport airport) {
+            if (!append(airport)) {
+                return; // The same object is already in the list
+            }
+            indexAirport(airport);
+            text().add(airport);
+            journal.append(ChangeJournal.Op.ADD, airport.getICAO(), toCsvRow(airport));
+            events.add(new Airport[] {null, airport});
+        }
+
+        /*
+         * Adds the airports of a bulk import whose code is still free, and writes them to the journal
+         * in one go. Airports whose code was taken in the meantime are rejected in the result.
+         */
+        void insertAirports(List<Airport> newAirports, List<Integer> rows, ImportResult<Airport> result) {
+            List<String> keys = new ArrayList<>(newAirports.size());
+            List<String> csvRows = new ArrayList<>(newAirports.size());
+            for (int i = 0; i < newAirports.size(); i++) {
+                Airport airport = newAirports.get(i);
+                if (airportsByICAO.containsKey(icaoKey(airport.getICAO()))) {
+                    result.reject(rows.get(i), airport, "An airport with ICAO code " + airport.getICAO() + " already exists");
                     continue;
                 }
+                if (!append(airport)) {
+                    continue; // The same object twice in the import
+                }
+                indexAirport(airport);
+                text().add(airport);
+                keys.add(airport.getICAO());
+                csvRows.add(toCsvRow(airport));
+                events.add(new Airport[] {null, airport});
+                result.accept(airport);
+            }
+            journal.append(ChangeJournal.Op.ADD, keys, csvRows);
+        }
 
-                // Parse CSV format - Split line by comma separator.lklk
-                String[] parts = line.split(",");
-                if (parts.length >= 9) { // Make sure we have all fields
-                    try {
-                        // Parse for each field
-                        String airportName = parts[0];
-
-                        // I use Double.parseDouble to convert from a string to double objects
-                        Double latitude = Double.parseDouble(parts[1]);
-                        Double longitude = Double.parseDouble(parts[2]);
-                        Double radioFrequencies = Double.parseDouble(parts[3]);
-
-                        // Parse the rest of the fields
-                        String regionState = parts[4];
-                        String regionAbbr = parts[5];
-                        String city = parts[6];
-                        String ICAO = parts[7];
-                        Double fuelTypes = Double.parseDouble(parts[8]);
-
-                        // Create a new Airport object and add it to the list
-                        loadedAirports.add(new Airport(airportName, latitude, longitude, radioFrequencies, regionState,
-                                regionAbbr, city, ICAO, fuelTypes));
-                    } catch (NumberFormatException e) {
-                        System.out.println("Error parsing number in line: " + line);
+        // Replaces the airport with this code (same position in the list) and updates both indexes.
+        void replaceAirport(String ICAO, Airport updatedAirport) {
+            Airport oldAirport = airportsByICAO.get(icaoKey(ICAO));
+            if (oldAirport == null) {
+                return;
+            }
+            int row = positions.remove(oldAirport);
+            airports.set(row, updatedAirport);
+            positions.put(updatedAirport, row);
+            if (row < base.airports.size()) {
+                replacedRows.set(row);
+            }
+            text().replace(oldAirport, updatedAirport);
+            String oldKey = icaoKey(oldAirport.getICAO());
+            if (oldKey.equals(icaoKey(updatedAirport.getICAO()))) {
+                airportsByICAO.replace(oldKey, oldAirport, updatedAirport); // Same code: just swap the entry
+            } else {
+                unindexAirport(oldAirport);
+                indexAirport(updatedAirport);
+            }
+            journal.append(ChangeJournal.Op.MODIFY, oldAirport.getICAO(), toCsvRow(updatedAirport));
+            events.add(new Airport[] {oldAirport, updatedAirport});
+        }
+
+        // Applies the rows reloadFromFile found changed; returns how many airports changed.
+        int applyFileChanges(List<Airport> changedAirports, Set<String> removedKeys) {
+            int before = events.size();
+            for (String key : removedKeys) {
+                removeAirports(key);
+            }
+            for (Airport airport : changedAirports) {
+                Airport existing = airportsByICAO.get(icaoKey(airport.getICAO()));
+                if (existing == null) {
+                    insertAirport(airport);
+                } else if (!toCsvRow(existing).equals(toCsvRow(airport))) {
+                    replaceAirport(existing.getICAO(), airport);
+                }
+            }
+            return events.size() - before;
+        }
+
+        // Removes every airport with this code.
+        void removeAirports(String ICAO) {
+            String key = icaoKey(ICAO);
+            Airport indexed = airportsByICAO.get(key);
+            if (indexed == null) {
+                return;
+            }
+            List<Airport> removed = new ArrayList<>();
+            if (sharedICAOs == 0) {
+                removed.add(indexed); // The only one with this code
+            } else {
+                for (Airport airport : airports) {
+                    if (airport != null && icaoKey(airport.getICAO()).equals(key)) removed.add(airport);
+                }
+            }
+            for (Airport airport : removed) {
+                airports.set(positions.remove(airport), null);
+                removedRows++;
+            }
+            for (Airport airport : removed) {
+                unindexAirport(airport);
+                text().remove(airport);
+            }
+            journal.append(ChangeJournal.Op.REMOVE, ICAO, null);
+            for (Airport airport : removed) {
+                events.add(new Airport[] {airport, null});
+            }
+        }
+
+        // Adds an airport to the end of the list and the position index; returns false if the same object is already there.
+        boolean append(Airport airport) {
+            if (positions.putIfAbsent(airport, airports.size()) != null) {
+                return false;
+            }
+            airports.add(airport);
+            return true;
+        }
+
+        /*
+         * Helper methods that keep the ICAO hash index in sync with the airport list.
+         * ICAO codes are compared case-insensitively, so the index key is the upper-case code.
+         */
+
+        // Adds an airport to the index. If the code is already taken, the first airport keeps it (like a list scan).
+        void indexAirport(Airport airport) {
+            Airport existing = airportsByICAO.putIfAbsent(icaoKey(airport.getICAO()), airport);
+            if (existing != null && existing != airport) {
+                sharedICAOs++;
+            }
+        }
+
+        // Removes an airport from the index (call after removing it from the list).
+        void unindexAirport(Airport airport) {
+            String key = icaoKey(airport.getICAO());
+            if (airportsByICAO.get(key) != airport) {
+                if (sharedICAOs > 0) sharedICAOs--; // It was a duplicate that was never indexed
+                return;
+            }
+            airportsByICAO.remove(key);
+
+            // Only when codes are shared can another airport take over this code; otherwise no scan is needed.
+            if (sharedICAOs > 0) {
+                for (Airport other : airports) {
+                    if (other != null && icaoKey(other.getICAO()).equals(key)) {
+                        airportsByICAO.put(key, other);
+                        sharedICAOs--;
+                        break;
                     }
                 }
             }
-        } catch (IOException e) {
-            System.out.println("Error loading airports: " + e.getMessage());
         }
-        return loadedAirports;
     }
 
-    /*
-     * Saves the airport data to a CSV or text file.
+    /**
+     * One immutable version of the airport data.
+     * Holding on to a snapshot gives a consistent view (list, ICAO lookup, table and spatial index all
+     * match) for as long as needed, no matter what writers do in the meantime.
      */
-    private void saveAirports() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(FILE_NAME, false))) { // false = overwrite file
-            // Write CSV header row with cloumn names for readability and data structure documentation
-            // This will help anyone who reads the file to understand the data structure.
-            writer.println("Airport Name,Latitude,Longitude,Frequency,Region_State,Region_Abbr.,City,ICAO,Fuel Types");
-
-            // Iterate through the collection and write each airport as a CSV row.
-            for (Airport airport : airports) {
-                writer.println(airport.getAirportName() + ","       // Full name of the airport
-                        + airport.getLatitude() + ","               // Geographical latitude (North/South position)
-                        + airport.getLongitude() + ","              // Geographical longitude (East/West position)
-                        + airport.getRadioFrequencies() + ","       // Communication frequencies (in MHz)
-                        + airport.getRegionState() + ","            // Region or state name
-                        + airport.getRegionAbbr() + ","             // Abbreviation of the region/state
-                        + airport.getCity() + ","                   // City where the airport is located
-                        + airport.getICAO() + ","                   // ICAO code (International Civil Aviation Organization)
-                        + airport.getFuelTypes());                  // Fuel types available (1=AVGAS, 2=Jet A, 3=both)
-            }
-            // File is automatically closed by try-with-resources.
-        } catch (IOException e) {
-            // Log any file writing errors but allow the program to continue.
-            System.out.println("Error saving airports: " + e.getMessage());
-            // NOTE: Data will remain even if the save fails.
+    public static final class Snapshot {
+        private final List<Airport> airports;                     // Read-only
+        private final ShardedMap<String, Airport> airportsByICAO; // Never changed after the snapshot is published
+        private final int sharedICAOs;
+        private final AirportTextIndex textIndex;                 // Never changed; the next snapshot gets an edited copy
+        private final AirportTable table;
+        private final AirportSpatialIndex spatialIndex;
+        private final long version;
+
+        private Snapshot(List<Airport> airports, ShardedMap<String, Airport> airportsByICAO, int sharedICAOs,
+                         AirportTextIndex textIndex, AirportTable table, AirportSpatialIndex spatialIndex, long version) {
+            this.airports = airports;
+            this.airportsByICAO = airportsByICAO;
+            this.sharedICAOs = sharedICAOs;
+            this.textIndex = textIndex;
+            this.table = table;
+            this.spatialIndex = spatialIndex;
+            this.version = version;
+        }
+
+        //Getter methods
+        public List<Airport> getAirports() { return airports; }
+        public long getVersion() { return version; }
+        public int size() { return airports.size(); }
+
+        // Finds an airport by exact ICAO code (case-insensitive), or returns null
+        public Airport searchAirport(String ICAO) {
+            return airportsByICAO.get(icaoKey(ICAO));
         }
+
+        // Partial, case-insensitive search on one field; returns the matching airports of this snapshot in list order
+        public List<Airport> findAirports(AirportTextIndex.Field field, String query) {
+            return textIndex.search(field, query);
+        }
+
+        // Returns the column-oriented table of this snapshot; row i is getAirports().get(i)
+        public AirportTable getTable() {
+            return table;
+        }
+
+        // Returns the spatial index of this snapshot (shares its rows with getTable())
+        public AirportSpatialIndex getSpatialIndex() {
+            return spatialIndex;
+        }
+    }
+
+    /*
+     * Formats an airport as one row of the CSV file.
+     */
+    private static String toCsvRow(Airport airport) {
+        return CsvReader.quote(airport.getAirportName()) + ","       // Full name of the airport (quoted if it contains a comma)
+                + csvNumber(airport.getLatitude()) + ","             // Geographical latitude (North/South position)
+                + csvNumber(airport.getLongitude()) + ","            // Geographical longitude (East/West position)
+                + csvNumber(airport.getRadioFrequencies()) + ","     // Communication frequencies (in MHz)
+                + CsvReader.quote(airport.getRegionState()) + ","    // Region or state name
+                + CsvReader.quote(airport.getRegionAbbr()) + ","     // Abbreviation of the region/state
+                + CsvReader.quote(airport.getCity()) + ","           // City where the airport is located
+                + CsvReader.quote(airport.getICAO()) + ","           // ICAO code (International Civil Aviation Organization)
+                + csvNumber(airport.getFuelTypes());                 // Fuel types available (1=AVGAS, 2=Jet A, 3=both)
+    }
+
+    // A missing value (NaN) is written as "null", the way the file has always stored it
+    private static String csvNumber(double value) {
+        return Double.isNaN(value) ? "null" : String.valueOf(value);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+package src;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary copy of the airport CSV file that loads without any text parsing.
+ * The file is written next to the CSV as "<csv file>.snapshot" and opened with FileChannel.map.
+ *
+ * Layout (big-endian):
+ *   header:  magic "JFSA", format version, CSV length and CSV last-modified time, row count
+ *   columns: latitude[n], longitude[n], frequency[n], fuelTypes[n] as doubles
+ *   strings: (n * STRING_FIELDS + 1) int offsets into a UTF-8 heap, then the heap itself
+ *
+ * The CSV length and modification time stored in the header tell whether the snapshot still
+ * matches the CSV; if the CSV changed (or the version is different) read returns null and the
+ * caller falls back to the CSV and writes a new snapshot.
+ */
+public final class AirportSnapshot {
+    private static final int MAGIC = 0x4A465341; // "JFSA"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final int STRING_FIELDS = 5;  // Name, region/state, region abbreviation, city, ICAO
+
+    private AirportSnapshot() {
+    }
+
+    // Returns the snapshot file that belongs to a CSV file
+    public static Path snapshotFileFor(String csvFileName) {
+        return Path.of(csvFileName + ".snapshot");
+    }
+
+    /**
+     * Reads the airports from the snapshot of a CSV file.
+     * @return the airports in CSV order, or null if there is no snapshot or it does not match the CSV anymore
+     */
+    public static List<Airport> read(String csvFileName) {
+        Path csvFile = Path.of(csvFileName);
+        Path snapshotFile = snapshotFileFor(csvFileName);
+        if (!Files.exists(csvFile) || !Files.exists(snapshotFile)) return null;
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return null;
+            if (buffer.getLong(8) != Files.size(csvFile)
+                    || buffer.getLong(16) != Files.getLastModifiedTime(csvFile).toMillis()) {
+                return null; // The CSV was edited after this snapshot was written
+            }
+
+            int n = buffer.getInt(24);
+            int latitudes = HEADER_BYTES;
+            int longitudes = latitudes + n * 8;
+            int frequencies = longitudes + n * 8;
+            int fuelTypes = frequencies + n * 8;
+            int offsets = fuelTypes + n * 8;
+            int heap = offsets + (n * STRING_FIELDS + 1) * 4;
+            if (heap > buffer.capacity() || heap + buffer.getInt(heap - 4) > buffer.capacity()) {
+                return null; // Truncated file
+            }
+
+            List<Airport> airports = new ArrayList<>(n);
+            String[] fields = new String[STRING_FIELDS];
+            for (int i = 0; i < n; i++) {
+                for (int f = 0; f < STRING_FIELDS; f++) {
+                    int slot = offsets + (i * STRING_FIELDS + f) * 4;
+                    fields[f] = decode(buffer, heap + buffer.getInt(slot), heap + buffer.getInt(slot + 4));
+                }
+                airports.add(new Airport(fields[0], buffer.getDouble(latitudes + i * 8), buffer.getDouble(longitudes + i * 8),
+                        buffer.getDouble(frequencies + i * 8), fields[1], fields[2], fields[3], fields[4],
+                        buffer.getDouble(fuelTypes + i * 8)));
+            }
+            return airports;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error reading airport snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot for a CSV file. The airports must be exactly what the CSV contains right now.
+     * The file is written to a temporary name first and then moved into place.
+     */
+    public static void write(String csvFileName, List<Airport> airports) {
+        Path csvFile = Path.of(csvFileName);
+        Path snapshotFile = snapshotFileFor(csvFileName);
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            long csvLength = Files.size(csvFile);
+            long csvModified = Files.getLastModifiedTime(csvFile).toMillis();
+
+            // Encode the strings first so the size of the heap is known.
+            int n = airports.size();
+            byte[][] strings = new byte[n * STRING_FIELDS][];
+            int heapBytes = 0;
+            for (int i = 0; i < n; i++) {
+                Airport airport = airports.get(i);
+                String[] fields = {airport.getAirportName(), airport.getRegionState(), airport.getRegionAbbr(),
+                        airport.getCity(), airport.getICAO()};
+                for (int f = 0; f < STRING_FIELDS; f++) {
+                    byte[] bytes = fields[f] == null ? new byte[0] : fields[f].getBytes(StandardCharsets.UTF_8);
+                    strings[i * STRING_FIELDS + f] = bytes;
+                    heapBytes += bytes.length;
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + n * 4 * 8 + (strings.length + 1) * 4 + heapBytes);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(csvLength).putLong(csvModified).putInt(n);
+            for (Airport airport : airports) buffer.putDouble(airport.getLatitude());
+            for (Airport airport : airports) buffer.putDouble(airport.getLongitude());
+            for (Airport airport : airports) buffer.putDouble(airport.getRadioFrequencies());
+            for (Airport airport : airports) buffer.putDouble(airport.getFuelTypes());
+            int offset = 0;
+            for (byte[] bytes : strings) {
+                buffer.putInt(offset);
+                offset += bytes.length;
+            }
+            buffer.putInt(offset);
+            for (byte[] bytes : strings) buffer.put(bytes);
+            buffer.flip();
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Error writing airport snapshot: " + e.getMessage());
+        }
+    }
+
+    // Decodes one string of the heap. Pure ASCII (the usual case) skips the UTF-8 decoder.
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        for (byte b : bytes) {
+            if (b < 0) return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,597 @@
+package src;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Spatial index over a fixed set of airports for radius searches on the globe.
+ * Every airport is converted once into a unit vector on the sphere and stored in a
+ * 3D k-d tree. A great-circle radius is then the same as a straight-line (chord)
+ * radius between unit vectors, so a search only visits tree nodes near the center.
+ *
+ * For refuel searches the airports are also partitioned by fuel: one extra tree per airplane
+ * fuel mask holds only the airports selling that fuel, so a search never visits airports the
+ * airplane cannot refuel at. These trees are built on first use.
+ *
+ * Nearest-airport (k-NN) queries walk the same trees best-first: subtrees wait in a priority queue
+ * ordered by the closest they could be to the point, and the walk stops as soon as the next subtree
+ * cannot beat the k-th airport found so far. The queues live in a reusable workspace, so repeated
+ * queries do not allocate: a platform thread keeps its own, and virtual threads (one per request in
+ * PlanningService) borrow one from a small shared pool. Workspaces hold no reference to an index.
+ */
+public class AirportSpatialIndex {
+    private static final double EARTH_RADIUS_MILES = 3959; // Same radius used by FlightPlanning
+    private static final double CHORD_SLACK = 1e-9; // Keeps borderline airports in the candidate set
+    private static final int[] NO_ROWS = new int[0];
+    private static final ThreadLocal<NearestSearch> NEAREST_SEARCH = ThreadLocal.withInitial(NearestSearch::new);
+    private static final ArrayBlockingQueue<NearestSearch> SHARED_SEARCHES =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors()); // Workspaces for virtual threads
+
+    private final AirportTable table;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final int[] tree; // Table rows in k-d order (median of each range is the node)
+    private final AtomicReferenceArray<int[]> fuelTrees = new AtomicReferenceArray<>(FuelTypes.ALL + 1); // Fuel mask -> tree of the rows selling it
+
+    /**
+     * Builds the index from a list of airports. The list is copied, so later changes
+     * to it are not seen by this index.
+     * @param allAirports: the airports to index
+     */
+    public AirportSpatialIndex(List<Airport> allAirports) {
+        this(AirportTable.of(allAirports));
+    }
+
+    /**
+     * Builds the index over the rows of an airport table.
+     * @param table: the airports to index
+     */
+    public AirportSpatialIndex(AirportTable table) {
+        int n = table.size();
+        this.table = table;
+        this.xs = new double[n];
+        this.ys = new double[n];
+        this.zs = new double[n];
+        this.tree = new int[n];
+
+        // Convert latitude/longitude to a unit vector once per airport.
+        for (int i = 0; i < n; i++) {
+            double lon = table.getLongitudeRadians(i);
+            xs[i] = table.getCosLatitude(i) * Math.cos(lon);
+            ys[i] = table.getCosLatitude(i) * Math.sin(lon);
+            zs[i] = table.getSinLatitude(i);
+            tree[i] = i;
+        }
+        build(tree, 0, n, 0);
+    }
+
+    // Index over a new table whose airports are where they were in previous: shares its vectors and tree
+    private AirportSpatialIndex(AirportTable table, AirportSpatialIndex previous, boolean sameFuel) {
+        this.table = table;
+        this.xs = previous.xs;
+        this.ys = previous.ys;
+        this.zs = previous.zs;
+        this.tree = previous.tree;
+        if (sameFuel) {
+            for (int mask = 0; mask < fuelTrees.length(); mask++) {
+                fuelTrees.set(mask, previous.fuelTrees.get(mask));
+            }
+        }
+    }
+
+    /**
+     * Returns the index for the next version of this index's table (see AirportTable.next).
+     * When the rows are the same and no replaced airport moved, the vectors and the tree are shared
+     * (and the fuel trees too if no fuel changed); otherwise the index is built from scratch.
+     * @param next: the new table
+     * @param replacedRows: rows whose airport was replaced, or null if rows were added or removed
+     */
+    AirportSpatialIndex next(AirportTable next, BitSet replacedRows) {
+        if (replacedRows == null || next.size() != table.size()) {
+            return new AirportSpatialIndex(next);
+        }
+        boolean sameFuel = true;
+        for (int row = replacedRows.nextSetBit(0); row >= 0; row = replacedRows.nextSetBit(row + 1)) {
+            if (!next.samePosition(row, table)) {
+                return new AirportSpatialIndex(next);
+            }
+            sameFuel &= next.getFuelMask(row) == table.getFuelMask(row);
+        }
+        return new AirportSpatialIndex(next, this, sameFuel);
+    }
+
+    // Returns the table this index was built on (row numbers are shared)
+    public AirportTable getTable() {
+        return table;
+    }
+
+    // Returns the number of indexed airports
+    public int size() {
+        return table.size();
+    }
+
+    // Returns the indexed airport at the given position (same order as the source list)
+    public Airport getAirport(int index) {
+        return table.getAirport(index);
+    }
+
+    // Unit vector of a row on the sphere (used by Reachability to build its own trees)
+    double getX(int row) { return xs[row]; }
+    double getY(int row) { return ys[row]; }
+    double getZ(int row) { return zs[row]; }
+
+    // Row at a position of the k-d order; neighbouring positions are close together on the globe
+    int getRowInTreeOrder(int position) { return tree[position]; }
+
+    /**
+     * Finds every airport that may lie within the given great-circle radius of the center.
+     * The result is a superset by at most a rounding error, so callers that need an exact
+     * cutoff should still compare the real distance.
+     * @param center: the airport to search around
+     * @param radiusMiles: the search radius in miles
+     * @return indices of the matching airports, in ascending (source list) order
+     */
+    public int[] findWithinRadius(Airport center, double radiusMiles) {
+        return findWithinRadius(center.getLatitude(), center.getLongitude(), radiusMiles);
+    }
+
+    /**
+     * Same as above, with the center given as latitude/longitude in degrees.
+     */
+    public int[] findWithinRadius(double latitude, double longitude, double radiusMiles) {
+        return search(tree, latitude, longitude, radiusMiles);
+    }
+
+    /**
+     * Same as above, but only returns airports that sell one of the fuels in the mask (see FuelTypes).
+     * Only the airports of that fuel partition are searched.
+     * @param fuelMask: the fuels the airplane can burn (Airplane.getFuelMask())
+     */
+    public int[] findWithinRadius(double latitude, double longitude, double radiusMiles, int fuelMask) {
+        int mask = fuelMask & FuelTypes.ALL;
+        if (mask == FuelTypes.NONE) return new int[0];
+        return search(fuelTree(mask), latitude, longitude, radiusMiles);
+    }
+
+    private int[] search(int[] tree, double latitude, double longitude, double radiusMiles) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cx = Math.cos(lat) * Math.cos(lon);
+        double cy = Math.cos(lat) * Math.sin(lon);
+        double cz = Math.sin(lat);
+
+        // Convert the great-circle radius to the equivalent chord length on a unit sphere.
+        double angle = Math.min(Math.PI, Math.max(0, radiusMiles) / EARTH_RADIUS_MILES);
+        double chord = 2 * Math.sin(angle / 2) + CHORD_SLACK;
+
+        IntList found = new IntList();
+        search(tree, 0, tree.length, 0, cx, cy, cz, chord * chord, found);
+        return found.toSortedArray();
+    }
+
+    // Returns the tree over the rows selling a fuel in the mask, building it the first time.
+    // Two threads may both build it; both results are the same, and only one is kept.
+    private int[] fuelTree(int mask) {
+        int[] result = fuelTrees.get(mask);
+        if (result != null) return result;
+
+        IntList rows = new IntList();
+        for (int i = 0; i < table.size(); i++) {
+            if ((table.getFuelMask(i) & mask) != 0) rows.add(i);
+        }
+        if (rows.size == table.size()) {
+            result = tree; // Every airport sells this fuel, so the full tree already is the partition
+        } else {
+            result = Arrays.copyOf(rows.values, rows.size);
+            build(result, 0, result.length, 0);
+        }
+        fuelTrees.compareAndSet(mask, null, result);
+        return fuelTrees.get(mask);
+    }
+
+    /**
+     * Great-circle distances from a point to every indexed airport, with the bulk kernel (see BulkHaversine).
+     * @param latitude: latitude of the point in degrees
+     * @param longitude: longitude of the point in degrees
+     * @param out: receives the distance in miles to airport i at index i (at least size() long)
+     */
+    public void distancesFrom(double latitude, double longitude, double[] out) {
+        if (out.length < size()) {
+            throw new IllegalArgumentException("The result array must hold a distance per airport.");
+        }
+        BulkHaversine.distances(latitude, longitude, xs, ys, zs, size(), out);
+    }
+
+    /**
+     * Finds the k airports nearest to a point, closest first.
+     * @param latitude: latitude of the point in degrees
+     * @param longitude: longitude of the point in degrees
+     * @param k: the number of airports wanted
+     * @return indices of the nearest airports (fewer than k if the index is smaller)
+     */
+    public int[] findNearest(double latitude, double longitude, int k) {
+        return findNearest(latitude, longitude, k, tree, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Same as above, but only airports that sell one of the fuels in the mask and lie within the given distance.
+     * @param fuelMask: the fuels the airplane can burn (Airplane.getFuelMask())
+     * @param maxDistanceMiles: the farthest an airport may be (Double.POSITIVE_INFINITY for no limit)
+     */
+    public int[] findNearest(double latitude, double longitude, int k, int fuelMask, double maxDistanceMiles) {
+        return findNearest(latitude, longitude, k, fuelTreeOrEmpty(fuelMask), maxDistanceMiles);
+    }
+
+    private int[] findNearest(double latitude, double longitude, int k, int[] tree, double maxDistanceMiles) {
+        int[] rows = new int[Math.max(0, Math.min(k, tree.length))];
+        int count = nearest(tree, latitude, longitude, rows.length, maxDistanceMiles, rows, null);
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Allocation-free form of findNearest for use inside planning loops: fills the caller's arrays
+     * with the nearest airports (closest first) and their great-circle distances.
+     * @param k: the number of airports wanted (at most rows.length)
+     * @param rows: receives the indices of the airports
+     * @param distancesMiles: receives the distance to each airport in miles (may be null)
+     * @return the number of airports found
+     */
+    public int findNearest(double latitude, double longitude, int k, int[] rows, double[] distancesMiles) {
+        checkCapacity(k, rows, distancesMiles);
+        return nearest(tree, latitude, longitude, k, Double.POSITIVE_INFINITY, rows, distancesMiles);
+    }
+
+    /**
+     * Same as above, but only airports that sell one of the fuels in the mask and lie within the given distance.
+     * @param fuelMask: the fuels the airplane can burn (Airplane.getFuelMask())
+     * @param maxDistanceMiles: the farthest an airport may be (Double.POSITIVE_INFINITY for no limit)
+     */
+    public int findNearest(double latitude, double longitude, int k, int fuelMask, double maxDistanceMiles,
+                           int[] rows, double[] distancesMiles) {
+        checkCapacity(k, rows, distancesMiles);
+        return nearest(fuelTreeOrEmpty(fuelMask), latitude, longitude, k, maxDistanceMiles, rows, distancesMiles);
+    }
+
+    private static void checkCapacity(int k, int[] rows, double[] distancesMiles) {
+        if (rows == null || k > rows.length || (distancesMiles != null && k > distancesMiles.length)) {
+            throw new IllegalArgumentException("The result arrays must hold at least k airports.");
+        }
+    }
+
+    /**
+     * Returns the airports an airplane can divert to from a point: the nearest ones selling its fuel
+     * within its maximum range, closest first.
+     * @param airplane: the diverting airplane
+     */
+    public List<Airport> findNearestAirports(double latitude, double longitude, int k, Airplane airplane) {
+        int[] indices = findNearest(latitude, longitude, k, airplane.getFuelMask(), airplane.getMaxRange());
+        List<Airport> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(table.getAirport(index));
+        }
+        return result;
+    }
+
+    private int[] fuelTreeOrEmpty(int fuelMask) {
+        int mask = fuelMask & FuelTypes.ALL;
+        return mask == FuelTypes.NONE ? NO_ROWS : fuelTree(mask);
+    }
+
+    private int nearest(int[] tree, double latitude, double longitude, int k, double maxDistanceMiles,
+                        int[] rows, double[] distancesMiles) {
+        if (k <= 0 || tree.length == 0 || Double.isNaN(latitude) || Double.isNaN(longitude)) return 0;
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        double cx = cosLat * Math.cos(lon);
+        double cy = cosLat * Math.sin(lon);
+        double cz = Math.sin(lat);
+        double limit = Double.POSITIVE_INFINITY;
+        if (maxDistanceMiles < Double.POSITIVE_INFINITY) {
+            double angle = Math.min(Math.PI, Math.max(0, maxDistanceMiles) / EARTH_RADIUS_MILES);
+            double chord = 2 * Math.sin(angle / 2) + CHORD_SLACK;
+            limit = chord * chord;
+        }
+
+        // A virtual thread usually lives for one request, so a thread-local workspace would be thrown away with it
+        boolean virtual = Thread.currentThread().isVirtual();
+        NearestSearch search = virtual ? SHARED_SEARCHES.poll() : NEAREST_SEARCH.get();
+        if (search == null) search = new NearestSearch();
+        try {
+            search.run(tree, xs, ys, zs, cx, cy, cz, k, limit);
+
+            // Exact distances, dropping airports that were only inside the limit by the chord slack
+            int count = 0;
+            for (int i = 0; i < search.found; i++) {
+                int index = search.foundRows[i];
+                double distance = AirportTable.haversine(lat, lon, cosLat,
+                        table.getLatitudeRadians(index), table.getLongitudeRadians(index), table.getCosLatitude(index));
+                if (distance > maxDistanceMiles) continue;
+                rows[count] = index;
+                if (distancesMiles != null) distancesMiles[count] = distance;
+                count++;
+            }
+            return count;
+        } finally {
+            if (virtual) SHARED_SEARCHES.offer(search); // Dropped when the pool is full
+        }
+    }
+
+    /*
+     * Workspace of k-NN queries, used by one thread at a time: a min-heap of subtrees still to visit,
+     * keyed by a lower bound of their squared chord distance to the point, and a max-heap of the k
+     * closest airports so far. The closest subtree is taken from the queue and walked down to a leaf, queuing the
+     * subtrees on the far side of each split on the way. Each subtree also keeps how far the point lies outside its cell on each axis; the
+     * bound is the sum of their squares, and a child only changes the offset on its split axis.
+     */
+    private static final class NearestSearch {
+        private double[] pendingBounds = new double[64];
+        private int[] pendingLo = new int[64];
+        private int[] pendingHi = new int[64];
+        private int[] pendingDepth = new int[64];
+        private double[] pendingOffsets = new double[3 * 64]; // Per subtree: x, y and z offset of the point from its cell
+        private int pending;
+
+        private double[] foundDistances = new double[16];
+        private int[] foundRows = new int[16];
+        private int found;
+
+        void run(int[] tree, double[] xs, double[] ys, double[] zs, double cx, double cy, double cz, int k, double limit) {
+            if (foundRows.length < k) {
+                foundRows = new int[k];
+                foundDistances = new double[k];
+            }
+            pending = 0;
+            found = 0;
+            push(0, 0, tree.length, 0, 0, 0, 0);
+
+            while (pending > 0) {
+                double bound = pendingBounds[0];
+                if (bound > worst(k, limit)) break; // Every subtree left is farther than the k-th airport
+                int lo = pendingLo[0];
+                int hi = pendingHi[0];
+                int depth = pendingDepth[0];
+                double offsetX = pendingOffsets[0];
+                double offsetY = pendingOffsets[1];
+                double offsetZ = pendingOffsets[2];
+                popPending();
+
+                // Walk down the side containing the point (its bound does not change) and queue the other sides.
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    int index = tree[mid];
+                    double dx = xs[index] - cx;
+                    double dy = ys[index] - cy;
+                    double dz = zs[index] - cz;
+                    double distance = dx * dx + dy * dy + dz * dz;
+                    if (distance <= worst(k, limit)) offer(index, distance, k);
+
+                    // On the far side, the offset on the split axis grows to the distance from the split plane.
+                    int axis = depth % 3;
+                    double diff = axis == 0 ? cx - xs[index] : axis == 1 ? cy - ys[index] : cz - zs[index];
+                    double offset = axis == 0 ? offsetX : axis == 1 ? offsetY : offsetZ;
+                    double farBound = bound - offset * offset + diff * diff;
+                    if (farBound <= worst(k, limit)) {
+                        push(farBound, diff <= 0 ? mid + 1 : lo, diff <= 0 ? hi : mid, depth + 1,
+                                axis == 0 ? diff : offsetX, axis == 1 ? diff : offsetY, axis == 2 ? diff : offsetZ);
+                    }
+                    if (diff <= 0) {
+                        hi = mid;
+                    } else {
+                        lo = mid + 1;
+                    }
+                    depth++;
+                }
+            }
+
+            // Heap order to closest first
+            for (int end = found - 1; end > 0; end--) {
+                swapFound(0, end);
+                siftDownFound(0, end);
+            }
+        }
+
+        // The squared chord an airport must beat to be kept
+        private double worst(int k, double limit) {
+            return found < k ? limit : foundDistances[0];
+        }
+
+        private void offer(int index, double distance, int k) {
+            if (found < k) {
+                foundRows[found] = index;
+                foundDistances[found] = distance;
+                int child = found++;
+                while (child > 0) {
+                    int parent = (child - 1) >>> 1;
+                    if (foundDistances[parent] >= foundDistances[child]) break;
+                    swapFound(parent, child);
+                    child = parent;
+                }
+            } else {
+                foundRows[0] = index;
+                foundDistances[0] = distance;
+                siftDownFound(0, found);
+            }
+        }
+
+        private void siftDownFound(int parent, int size) {
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) return;
+                if (child + 1 < size && foundDistances[child + 1] > foundDistances[child]) child++;
+                if (foundDistances[parent] >= foundDistances[child]) return;
+                swapFound(parent, child);
+                parent = child;
+            }
+        }
+
+        private void swapFound(int a, int b) {
+            int row = foundRows[a];
+            foundRows[a] = foundRows[b];
+            foundRows[b] = row;
+            double distance = foundDistances[a];
+            foundDistances[a] = foundDistances[b];
+            foundDistances[b] = distance;
+        }
+
+        private void push(double bound, int lo, int hi, int depth, double offsetX, double offsetY, double offsetZ) {
+            if (pending == pendingBounds.length) {
+                int capacity = pending * 2;
+                pendingBounds = Arrays.copyOf(pendingBounds, capacity);
+                pendingLo = Arrays.copyOf(pendingLo, capacity);
+                pendingHi = Arrays.copyOf(pendingHi, capacity);
+                pendingDepth = Arrays.copyOf(pendingDepth, capacity);
+                pendingOffsets = Arrays.copyOf(pendingOffsets, 3 * capacity);
+            }
+            int child = pending++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (pendingBounds[parent] <= bound) break;
+                movePending(parent, child);
+                child = parent;
+            }
+            pendingBounds[child] = bound;
+            pendingLo[child] = lo;
+            pendingHi[child] = hi;
+            pendingDepth[child] = depth;
+            pendingOffsets[3 * child] = offsetX;
+            pendingOffsets[3 * child + 1] = offsetY;
+            pendingOffsets[3 * child + 2] = offsetZ;
+        }
+
+        private void popPending() {
+            pending--;
+            if (pending == 0) return;
+            double bound = pendingBounds[pending];
+            int lo = pendingLo[pending];
+            int hi = pendingHi[pending];
+            int depth = pendingDepth[pending];
+            double offsetX = pendingOffsets[3 * pending];
+            double offsetY = pendingOffsets[3 * pending + 1];
+            double offsetZ = pendingOffsets[3 * pending + 2];
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= pending) break;
+                if (child + 1 < pending && pendingBounds[child + 1] < pendingBounds[child]) child++;
+                if (bound <= pendingBounds[child]) break;
+                movePending(child, parent);
+                parent = child;
+            }
+            pendingBounds[parent] = bound;
+            pendingLo[parent] = lo;
+            pendingHi[parent] = hi;
+            pendingDepth[parent] = depth;
+            pendingOffsets[3 * parent] = offsetX;
+            pendingOffsets[3 * parent + 1] = offsetY;
+            pendingOffsets[3 * parent + 2] = offsetZ;
+        }
+
+        private void movePending(int from, int to) {
+            pendingBounds[to] = pendingBounds[from];
+            pendingLo[to] = pendingLo[from];
+            pendingHi[to] = pendingHi[from];
+            pendingDepth[to] = pendingDepth[from];
+            pendingOffsets[3 * to] = pendingOffsets[3 * from];
+            pendingOffsets[3 * to + 1] = pendingOffsets[3 * from + 1];
+            pendingOffsets[3 * to + 2] = pendingOffsets[3 * from + 2];
+        }
+    }
+
+    /**
+     * Same as findWithinRadius but returns the airports themselves.
+     */
+    public List<Airport> findAirportsWithinRadius(Airport center, double radiusMiles) {
+        int[] indices = findWithinRadius(center, radiusMiles);
+        List<Airport> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(table.getAirport(index));
+        }
+        return result;
+    }
+
+    // Recursively arranges tree[lo, hi) so the median on the current axis sits in the middle.
+    private void build(int[] tree, int lo, int hi, int depth) {
+        if (hi - lo <= 1) return;
+        int mid = (lo + hi) >>> 1;
+        select(tree, lo, hi - 1, mid, depth % 3);
+        build(tree, lo, mid, depth + 1);
+        build(tree, mid + 1, hi, depth + 1);
+    }
+
+    // Quickselect: places the k-th smallest entry (by axis) at position k.
+    private void select(int[] tree, int lo, int hi, int k, int axis) {
+        while (hi > lo) {
+            double pivot = coordinate(tree[(lo + hi) >>> 1], axis);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate(tree[i], axis) < pivot) i++;
+                while (coordinate(tree[j], axis) > pivot) j--;
+                if (i <= j) {
+                    int swap = tree[i];
+                    tree[i] = tree[j];
+                    tree[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void search(int[] tree, int lo, int hi, int depth, double cx, double cy, double cz, double chordSquared, IntList found) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        int index = tree[mid];
+
+        double dx = xs[index] - cx;
+        double dy = ys[index] - cy;
+        double dz = zs[index] - cz;
+        if (dx * dx + dy * dy + dz * dz <= chordSquared) {
+            found.add(index);
+        }
+
+        // Visit the side containing the center first, the other side only if the sphere crosses the split.
+        int axis = depth % 3;
+        double diff = axis == 0 ? cx - xs[index] : axis == 1 ? cy - ys[index] : cz - zs[index];
+        if (diff <= 0) {
+            search(tree, lo, mid, depth + 1, cx, cy, cz, chordSquared, found);
+            if (diff * diff <= chordSquared) search(tree, mid + 1, hi, depth + 1, cx, cy, cz, chordSquared, found);
+        } else {
+            search(tree, mid + 1, hi, depth + 1, cx, cy, cz, chordSquared, found);
+            if (diff * diff <= chordSquared) search(tree, lo, mid, depth + 1, cx, cy, cz, chordSquared, found);
+        }
+    }
+
+    private double coordinate(int index, int axis) {
+        return axis == 0 ? xs[index] : axis == 1 ? ys[index] : zs[index];
+    }
+
+    // Small growable int array so searches do not box every index.
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toSortedArray() {
+            int[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package src;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Immutable, row-numbered view of a list of airports for hot loops.
+ * Airport stays the one place the values live: it is a plain object that the UI, the CSV loader and
+ * the snapshot reader create on their own, so it is not a view into a table. The table keeps a
+ * reference to each Airport (getLatitude(row) and the like read through it) plus what an Airport
+ * does not store: the radians, sin(latitude) and cos(latitude) of the coordinates, in primitive
+ * arrays, so distance calculations by row index do no repeated Math.toRadians/Math.cos calls. The
+ * one copied value is the fuel mask, packed into an int array for the scans that filter by fuel.
+ * rowOf finds a row by airport through an identity index.
+ *
+ * AirportManager builds the table of each new snapshot from the previous one (see next), so a write
+ * copies the columns and only computes the rows it added or replaced. The distance cache and stop
+ * matrix carry over as well when the write leaves what they depend on alone.
+ */
+public final class AirportTable {
+    private static final int EARTH_RADIUS_MILES = 3959; // Same radius used by FlightPlanning
+
+    private final Airport[] airports;
+    private final ShardedMap<Airport, Integer> rows; // Airport -> its row, by identity; never changed once built
+    private final double[] latitudeRadians;
+    private final double[] longitudeRadians;
+    private final double[] sinLatitudes;
+    private final double[] cosLatitudes;
+    private final int[] fuelMasks;
+    private volatile DistanceCache distanceCache; // Built on first use
+    private final ReentrantLock distanceCacheLock = new ReentrantLock(); // Not a monitor: callers may be virtual threads
+    private volatile StopMatrix stopMatrix;       // Attached by StopMatrix.loadOrBuild (see StopMatrix.Updater), null until then
+
+    /*
+     * Rows below previous.size() that are not in replacedRows are copied from previous; the others are computed.
+     * previous may be null (every row is computed).
+     */
+    private AirportTable(Airport[] airports, AirportTable previous, BitSet replacedRows) {
+        int n = airports.length;
+        this.airports = airports;
+        this.latitudeRadians = new double[n];
+        this.longitudeRadians = new double[n];
+        this.sinLatitudes = new double[n];
+        this.cosLatitudes = new double[n];
+        this.fuelMasks = new int[n];
+
+        int copied = previous == null ? 0 : Math.min(n, previous.size());
+        if (copied > 0) {
+            System.arraycopy(previous.latitudeRadians, 0, latitudeRadians, 0, copied);
+            System.arraycopy(previous.longitudeRadians, 0, longitudeRadians, 0, copied);
+            System.arraycopy(previous.sinLatitudes, 0, sinLatitudes, 0, copied);
+            System.arraycopy(previous.cosLatitudes, 0, cosLatitudes, 0, copied);
+            System.arraycopy(previous.fuelMasks, 0, fuelMasks, 0, copied);
+        }
+        this.rows = previous == null ? ShardedMap.identity() : previous.rows.copy();
+        if (replacedRows != null) {
+            for (int row = replacedRows.nextSetBit(0); row >= 0 && row < copied; row = replacedRows.nextSetBit(row + 1)) {
+                rows.remove(previous.airports[row]); // All old airports first, so airports that swapped rows keep theirs
+            }
+            for (int row = replacedRows.nextSetBit(0); row >= 0 && row < copied; row = replacedRows.nextSetBit(row + 1)) {
+                fill(row);
+            }
+        }
+        for (int row = copied; row < n; row++) {
+            fill(row);
+        }
+    }
+
+    private void fill(int row) {
+        Airport airport = airports[row];
+        latitudeRadians[row] = Math.toRadians(airport.getLatitude());
+        longitudeRadians[row] = Math.toRadians(airport.getLongitude());
+        sinLatitudes[row] = Math.sin(latitudeRadians[row]);
+        cosLatitudes[row] = Math.cos(latitudeRadians[row]);
+        fuelMasks[row] = airport.getFuelMask(); // FuelTypes bits (1=AVGAS, 2=Jet A, 3=both)
+        rows.putIfAbsent(airport, row); // The same object twice in a list keeps its first row
+    }
+
+    /**
+     * Builds a table from a list of airports. Row i is airports.get(i); the list is copied,
+     * so later changes to it are not seen by the table.
+     */
+    public static AirportTable of(List<Airport> airports) {
+        return new AirportTable(airports.toArray(new Airport[0]), null, null);
+    }
+
+    /**
+     * Builds the table of a new version of the airports from this one: the first size() airports
+     * must be in the same rows as here, apart from the replaced rows; the rest of the list is appended.
+     * Only the appended and replaced rows are computed, the others are copied (with their rowOf entries).
+     * @param airports: the new list of airports
+     * @param replacedRows: rows below size() whose airport was replaced
+     */
+    AirportTable next(List<Airport> airports, BitSet replacedRows) {
+        if (airports.size() < size()) {
+            throw new IllegalArgumentException("The airports of the next table must start with the rows of this one.");
+        }
+        AirportTable next = new AirportTable(airports.toArray(new Airport[0]), this, replacedRows);
+        boolean moved = false;
+        boolean refueled = false;
+        if (replacedRows != null) {
+            for (int row = replacedRows.nextSetBit(0); row >= 0 && row < size(); row = replacedRows.nextSetBit(row + 1)) {
+                moved |= !next.samePosition(row, this);
+                refueled |= next.fuelMasks[row] != fuelMasks[row];
+            }
+        }
+        // Cached distances only depend on the coordinates of their rows; stop counts also on fuel and on every row
+        DistanceCache cache = distanceCache;
+        if (cache != null && !moved) {
+            next.distanceCache = cache.next(next);
+        }
+        StopMatrix matrix = stopMatrix;
+        if (matrix != null && !moved && !refueled && next.size() == size()) {
+            next.stopMatrix = matrix.next(next);
+        }
+        return next;
+    }
+
+    // Returns true if the row has the same coordinates in both tables (so distances and the spatial index carry over)
+    boolean samePosition(int row, AirportTable other) {
+        return Double.compare(airports[row].getLatitude(), other.airports[row].getLatitude()) == 0
+                && Double.compare(airports[row].getLongitude(), other.airports[row].getLongitude()) == 0;
+    }
+
+    //Getter methods (by row)
+    public int size() { return airports.length; }
+    public Airport getAirport(int row) { return airports[row]; }
+    public double getLatitude(int row) { return airports[row].getLatitude(); }
+    public double getLongitude(int row) { return airports[row].getLongitude(); }
+    public double getLatitudeRadians(int row) { return latitudeRadians[row]; }
+    public double getLongitudeRadians(int row) { return longitudeRadians[row]; }
+    public double getSinLatitude(int row) { return sinLatitudes[row]; }
+    public double getCosLatitude(int row) { return cosLatitudes[row]; }
+    public double getRadioFrequency(int row) { return airports[row].getRadioFrequencies(); }
+    public int getFuelMask(int row) { return fuelMasks[row]; } // FuelTypes bits, like Airport.getFuelMask()
+
+    // Returns the airport -> row index of this table (by identity); copy it before making changes (see ShardedMap)
+    ShardedMap<Airport, Integer> rows() {
+        return rows;
+    }
+
+    // Returns true if row i of this table is airports.get(i) (by identity) for every row of the list
+    boolean hasRows(List<Airport> airports) {
+        if (airports.size() != this.airports.length) {
+            return false;
+        }
+        int row = 0;
+        for (Airport airport : airports) {
+            if (airport != this.airports[row++]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the row of an airport object (by identity), in constant time.
+     * @return the row, or -1 if the airport is not part of this table
+     */
+    public int rowOf(Airport airport) {
+        Integer row = rows.get(airport);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Great-circle distance in miles between two rows.
+     * Uses the same Haversine formula as FlightPlanning, with the trigonometry of the
+     * latitudes taken from the precomputed columns.
+     */
+    public double distance(int from, int to) {
+        return haversine(latitudeRadians[from], longitudeRadians[from], cosLatitudes[from],
+                latitudeRadians[to], longitudeRadians[to], cosLatitudes[to]);
+    }
+
+    /**
+     * Great-circle distance in miles from a point (given in radians, with cos of its latitude) to a row.
+     */
+    public double distanceFrom(double latRadians, double lonRadians, double cosLatitude, int to) {
+        return haversine(latRadians, lonRadians, cosLatitude,
+                latitudeRadians[to], longitudeRadians[to], cosLatitudes[to]);
+    }
+
+    // Returns the shared distance/heading cache of this table (see DistanceCache)
+    public DistanceCache getDistanceCache() {
+        DistanceCache result = distanceCache;
+        if (result == null) {
+            distanceCacheLock.lock(); // Only the first call builds it
+            try {
+                result = distanceCache;
+                if (result == null) {
+                    result = new DistanceCache(this);
+                    distanceCache = result;
+                }
+            } finally {
+                distanceCacheLock.unlock();
+            }
+        }
+        return result;
+    }
+
+    // Returns the precomputed stop counts for this table, or null if none were attached
+    public StopMatrix getStopMatrix() {
+        return stopMatrix;
+    }
+
+    // Attaches precomputed stop counts; they must have been built for this table
+    public void setStopMatrix(StopMatrix matrix) {
+        if (matrix != null && matrix.getTable() != this) {
+            throw new IllegalArgumentException("The stop matrix belongs to another airport table.");
+        }
+        this.stopMatrix = matrix;
+    }
+
+    /**
+     * Initial heading in degrees (0-360) from one row to another.
+     */
+    public double heading(int from, int to) {
+        double deltaLon = Math.toRadians(airports[to].getLongitude() - airports[from].getLongitude());
+        double y = Math.sin(deltaLon) * cosLatitudes[to];
+        double x = cosLatitudes[from] * sinLatitudes[to] - sinLatitudes[from] * cosLatitudes[to] * Math.cos(deltaLon);
+        return (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+    }
+
+    // Haversine formula on precomputed radians; the operation order matches FlightPlanning exactly.
+    static double haversine(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double latDistance = lat2 - lat1;
+        double lonDistance = lon2 - lon1;
+        double sinLat = Math.sin(latDistance / 2);
+        double sinLon = Math.sin(lonDistance / 2);
+        double aFormula = sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+        double c = 2 * Math.atan2(Math.sqrt(aFormula), Math.sqrt(1 - aFormula));
+        return EARTH_RADIUS_MILES * c;
+    }
+}
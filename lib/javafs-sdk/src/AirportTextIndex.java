@@ -0,0 +1,393 @@
+package src;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram (3-character) inverted index for partial, case-insensitive search on airport
+ * ICAO codes, names and cities.
+ * Every airport gets a document id in the order it was added, and each trigram of a field
+ * points to the sorted ids containing it. A substring query intersects the lists for its
+ * trigrams and only checks the remaining candidates with contains(). Two-character queries
+ * use a bigram list instead. Lower-cased field values are stored once, so a search does not
+ * allocate strings per airport. Removed ids are left empty until they outnumber the airports in
+ * the index; then the ids are renumbered (same order) and the lists rebuilt.
+ *
+ * An index never changes once built, so any number of threads can search it without locking
+ * (AirportManager keeps one per snapshot). Changes go through an Editor, which copies only the
+ * posting lists it touches and shares the rest with the index it started from. The lists are
+ * spread over SHARD_COUNT small maps, so an edit copies the few maps it touches, not one big map.
+ */
+public final class AirportTextIndex {
+
+    /**
+     * The airport fields that can be searched.
+     */
+    public enum Field { ICAO, NAME, CITY }
+
+    private static final int FIELD_COUNT = Field.values().length;
+    private static final int MAX_INTERSECTED_LISTS = 4; // After this many lists the candidates are few; contains() checks the rest
+    private static final long BIGRAM_FLAG = 1L << 52;   // Marks bigram keys so they never collide with trigram keys
+    private static final int MIN_COMPACT_IDS = 64;      // Small indexes keep their empty ids
+    private static final int SHARD_BITS = 10;
+    private static final int SHARD_COUNT = 1 << SHARD_BITS;
+
+    private final Map<Long, Postings>[] shards;  // Posting lists by key, split by shard(key); null = empty shard
+    private final ShardedMap<Airport, Integer> idsByAirport;
+    private final Airport[] airports;     // Document id -> airport (null once removed)
+    private final String[][] values;      // Document id -> lower-cased field values
+    private final int nextId;
+    private final int removedIds;         // Ids below nextId whose airport was removed
+
+    /**
+     * Builds an index containing the given airports, in list order.
+     */
+    public AirportTextIndex(List<Airport> initialAirports) {
+        this(Editor.of(initialAirports));
+    }
+
+    private AirportTextIndex(Editor editor) {
+        this.shards = editor.shards;
+        this.idsByAirport = editor.idsByAirport;
+        this.airports = editor.airports;
+        this.values = editor.values;
+        this.nextId = editor.nextId;
+        this.removedIds = editor.removedIds;
+    }
+
+    // Returns an editor that starts from this index; this index stays as it is
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Finds every airport whose field contains the query, ignoring case.
+     * @param field: the field to search
+     * @param query: the full or partial value to look for
+     * @return the matching airports in the order they were added
+     */
+    public List<Airport> search(Field field, String query) {
+        String needle = normalize(query);
+        List<Airport> result = new ArrayList<>();
+        int f = field.ordinal();
+
+        // Two-character queries read their bigram list directly.
+        if (needle.length() == 2) {
+            Postings list = get(shards, bigramKey(f, needle, 0));
+            if (list != null) {
+                for (int i = 0; i < list.size; i++) {
+                    result.add(airports[list.ids[i]]);
+                }
+            }
+            return result;
+        }
+
+        // Shorter queries cannot use the index; check the stored values directly.
+        if (needle.length() < 3) {
+            for (int id = 0; id < nextId; id++) {
+                if (values[id] != null && values[id][f].contains(needle)) {
+                    result.add(airports[id]);
+                }
+            }
+            return result;
+        }
+
+        // Collect the posting list of every trigram in the query; a missing trigram means no match.
+        int trigramCount = needle.length() - 2;
+        Postings[] lists = new Postings[trigramCount];
+        for (int i = 0; i < trigramCount; i++) {
+            Postings list = get(shards, trigramKey(f, needle, i));
+            if (list == null) return result;
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size)); // Intersect starting with the shortest list
+        int listCount = Math.min(trigramCount, MAX_INTERSECTED_LISTS);
+
+        // Walk the shortest list and keep ids that appear in every other list, then verify the substring.
+        Postings shortest = lists[0];
+        int[] cursors = new int[listCount];
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            int id = shortest.ids[i];
+            for (int l = 1; l < listCount; l++) {
+                Postings other = lists[l];
+                int c = cursors[l];
+                while (c < other.size && other.ids[c] < id) c++;
+                cursors[l] = c;
+                if (c == other.size) break candidates;
+                if (other.ids[c] != id) continue candidates;
+            }
+            if (values[id][f].contains(needle)) {
+                result.add(airports[id]);
+            }
+        }
+        return result;
+    }
+
+    // Returns the number of airports in the index
+    public int size() {
+        return idsByAirport.size();
+    }
+
+    /**
+     * Collects changes for a new version of an index. The id arrays are copied when the editor is
+     * created; the airport ids (a ShardedMap), the shards and the posting lists are copied only when
+     * first changed, so the index the editor started from is never modified. Call build() once when done; the editor cannot be used afterwards.
+     */
+    public static final class Editor {
+        private final Map<Long, Postings>[] shards;
+        private final boolean[] ownedShards = new boolean[SHARD_COUNT]; // Shards created or copied here
+        private ShardedMap<Airport, Integer> idsByAirport;
+        private final Set<Postings> owned = Collections.newSetFromMap(new IdentityHashMap<>()); // Lists created or copied here
+        private Airport[] airports;
+        private String[][] values;
+        private int nextId;
+        private int removedIds;
+        private boolean built;
+
+        private Editor() {
+            this.shards = newShards();
+            this.idsByAirport = ShardedMap.identity();
+            this.airports = new Airport[16];
+            this.values = new String[16][];
+        }
+
+        private Editor(AirportTextIndex base) {
+            this.shards = Arrays.copyOf(base.shards, SHARD_COUNT);
+            this.idsByAirport = base.idsByAirport.copy();
+            this.airports = Arrays.copyOf(base.airports, base.airports.length);
+            this.values = Arrays.copyOf(base.values, base.values.length);
+            this.nextId = base.nextId;
+            this.removedIds = base.removedIds;
+        }
+
+        private static Editor of(List<Airport> initialAirports) {
+            Editor editor = new Editor();
+            for (Airport airport : initialAirports) {
+                editor.add(airport);
+            }
+            editor.built = true;
+            return editor;
+        }
+
+        // Returns the new index
+        public AirportTextIndex build() {
+            checkOpen();
+            built = true;
+            return new AirportTextIndex(this);
+        }
+
+        // Adds an airport at the end of the index
+        public void add(Airport airport) {
+            checkOpen();
+            if (idsByAirport.containsKey(airport)) return;
+            int id = nextId++;
+            if (id == airports.length) {
+                airports = Arrays.copyOf(airports, id * 2);
+                values = Arrays.copyOf(values, id * 2);
+            }
+            airports[id] = airport;
+            idsByAirport.put(airport, id);
+            indexValues(id, airport);
+        }
+
+        // Removes an airport from the index
+        public void remove(Airport airport) {
+            checkOpen();
+            Integer id = idsByAirport.remove(airport);
+            if (id == null) return;
+            unindexValues(id);
+            airports[id] = null;
+            values[id] = null;
+            removedIds++;
+            if (removedIds >= MIN_COMPACT_IDS && removedIds > idsByAirport.size()) {
+                compact();
+            }
+        }
+
+        // Replaces an airport with its updated version, keeping its position in the result order
+        public void replace(Airport oldAirport, Airport updatedAirport) {
+            checkOpen();
+            Integer id = idsByAirport.remove(oldAirport);
+            if (id == null) {
+                add(updatedAirport);
+                return;
+            }
+            String[] oldValues = values[id];
+            String[] newValues = fieldValues(updatedAirport);
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                if (oldValues[f].equals(newValues[f])) continue; // Same text: its lists stay as they are
+                unindexValue(id, f, oldValues[f]);
+                indexValue(id, f, newValues[f]);
+            }
+            airports[id] = updatedAirport;
+            values[id] = newValues;
+            idsByAirport.put(updatedAirport, id);
+        }
+
+        private void checkOpen() {
+            if (built) {
+                throw new IllegalStateException("The index was already built from this editor");
+            }
+        }
+
+        // Renumbers the remaining airports without gaps (keeping their order) and rebuilds the lists.
+        private void compact() {
+            Airport[] remaining = new Airport[idsByAirport.size()];
+            int count = 0;
+            for (int id = 0; id < nextId; id++) {
+                if (airports[id] != null) remaining[count++] = airports[id];
+            }
+            Arrays.fill(shards, null);
+            Arrays.fill(ownedShards, false);
+            owned.clear();
+            idsByAirport = ShardedMap.identity();
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, count)) * 2);
+            airports = new Airport[capacity];
+            values = new String[capacity][];
+            nextId = 0;
+            removedIds = 0;
+            for (int i = 0; i < count; i++) {
+                add(remaining[i]);
+            }
+        }
+
+        private void indexValues(int id, Airport airport) {
+            String[] fieldValues = fieldValues(airport);
+            values[id] = fieldValues;
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                indexValue(id, f, fieldValues[f]);
+            }
+        }
+
+        private void unindexValues(int id) {
+            String[] fieldValues = values[id];
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                unindexValue(id, f, fieldValues[f]);
+            }
+        }
+
+        private void indexValue(int id, int f, String value) {
+            for (int i = 0; i + 2 <= value.length(); i++) {
+                writable(bigramKey(f, value, i)).add(id);
+                if (i + 3 <= value.length()) {
+                    writable(trigramKey(f, value, i)).add(id);
+                }
+            }
+        }
+
+        private void unindexValue(int id, int f, String value) {
+            for (int i = 0; i + 2 <= value.length(); i++) {
+                removePosting(bigramKey(f, value, i), id);
+                if (i + 3 <= value.length()) {
+                    removePosting(trigramKey(f, value, i), id);
+                }
+            }
+        }
+
+        private void removePosting(long key, int id) {
+            if (get(shards, key) == null) return;
+            Postings list = writable(key);
+            if (list.remove(id) && list.size == 0) {
+                shards[shard(key)].remove(key);
+            }
+        }
+
+        // Returns the list for a key that this editor may change, copying a shared list (and its shard) first
+        private Postings writable(long key) {
+            int shard = shard(key);
+            if (!ownedShards[shard]) {
+                shards[shard] = shards[shard] == null ? new HashMap<>() : new HashMap<>(shards[shard]);
+                ownedShards[shard] = true;
+            }
+            Map<Long, Postings> postings = shards[shard];
+            Postings list = postings.get(key);
+            if (list == null) {
+                list = new Postings();
+            } else if (owned.contains(list)) {
+                return list;
+            } else {
+                list = list.copy();
+            }
+            postings.put(key, list);
+            owned.add(list);
+            return list;
+        }
+    }
+
+    // Returns the lower-cased values of the searchable fields, by Field ordinal.
+    private static String[] fieldValues(Airport airport) {
+        String[] fieldValues = new String[FIELD_COUNT];
+        fieldValues[Field.ICAO.ordinal()] = normalize(airport.getICAO());
+        fieldValues[Field.NAME.ordinal()] = normalize(airport.getAirportName());
+        fieldValues[Field.CITY.ordinal()] = normalize(airport.getCity());
+        return fieldValues;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<Long, Postings>[] newShards() {
+        return (Map<Long, Postings>[]) new Map[SHARD_COUNT];
+    }
+
+    // Spreads the keys (whose low bits are mostly letters) evenly over the shards.
+    private static int shard(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - SHARD_BITS));
+    }
+
+    private static Postings get(Map<Long, Postings>[] shards, long key) {
+        Map<Long, Postings> postings = shards[shard(key)];
+        return postings == null ? null : postings.get(key);
+    }
+
+    // Packs the field and two 16-bit characters into one long key.
+    private static long bigramKey(int field, String value, int offset) {
+        return ((long) field << 48) | BIGRAM_FLAG | ((long) value.charAt(offset) << 16) | value.charAt(offset + 1);
+    }
+
+    // Packs the field and three 16-bit characters into one long key.
+    private static long trigramKey(int field, String value, int offset) {
+        return ((long) field << 48) | ((long) value.charAt(offset) << 32)
+                | ((long) value.charAt(offset + 1) << 16) | value.charAt(offset + 2);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    // Sorted list of document ids for one trigram. Only changed by the Editor that created or copied it.
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        Postings copy() {
+            Postings copy = new Postings();
+            copy.ids = Arrays.copyOf(ids, Math.max(4, size));
+            copy.size = size;
+            return copy;
+        }
+
+        void add(int id) {
+            int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) return; // Already present (same trigram twice in one value)
+            if (position < 0) position = -position - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) return false;
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
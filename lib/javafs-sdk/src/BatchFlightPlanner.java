@@ -0,0 +1,152 @@
+package src;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Plans many flights at once on a ForkJoin pool.
+ * The whole batch runs against one airport snapshot (and its spatial index) and one
+ * read-only copy of the airplanes, which all worker threads share. Results come back in the same
+ * order as the requests, and a request that fails is reported in its result instead
+ * of stopping the rest of the batch.
+ */
+public class BatchFlightPlanner {
+
+    /**
+     * One flight to plan, identified by ICAO codes and the airplane make/model.
+     */
+    public static class Request {
+        private final String startICAO;
+        private final String destinationICAO;
+        private final String airplaneMakeModel;
+
+        public Request(String startICAO, String destinationICAO, String airplaneMakeModel) {
+            this.startICAO = startICAO;
+            this.destinationICAO = destinationICAO;
+            this.airplaneMakeModel = airplaneMakeModel;
+        }
+
+        //Getter methods
+        public String getStartICAO() { return startICAO; }
+        public String getDestinationICAO() { return destinationICAO; }
+        public String getAirplaneMakeModel() { return airplaneMakeModel; }
+    }
+
+    /**
+     * Outcome of one request: either the planned flight or the reason it could not be planned.
+     */
+    public static class Result {
+        private final Request request;
+        private final Flight flight;
+        private final String error;
+
+        private Result(Request request, Flight flight, String error) {
+            this.request = request;
+            this.flight = flight;
+            this.error = error;
+        }
+
+        //Getter methods
+        public Request getRequest() { return request; }
+        public Flight getFlight() { return flight; }
+        public String getError() { return error; }
+        public boolean isSuccess() { return flight != null; }
+    }
+
+    private final AirportManager airportManager;
+    private final AirplaneManager airplaneManager;
+    private final int parallelism;
+
+    /**
+     * Creates a planner that uses one worker per available processor.
+     */
+    public BatchFlightPlanner(AirportManager airportManager, AirplaneManager airplaneManager) {
+        this(airportManager, airplaneManager, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param airportManager: source of the airports
+     * @param airplaneManager: source of the airplanes
+     * @param parallelism: number of worker threads to plan with
+     */
+    public BatchFlightPlanner(AirportManager airportManager, AirplaneManager airplaneManager, int parallelism) {
+        if (airportManager == null || airplaneManager == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        this.airportManager = airportManager;
+        this.airplaneManager = airplaneManager;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Plans every request and returns one result per request, in the same order.
+     * @param requests: the flights to plan
+     * @return the results, where results.get(i) belongs to requests.get(i)
+     */
+    public List<Result> planAll(List<Request> requests) {
+        // Read-only data shared by all workers for the whole batch. Edits made while the batch
+        // runs do not affect it, since the airport snapshot never changes.
+        AirportManager.Snapshot airports = airportManager.getSnapshot();
+        Map<String, Airplane> airplanesByMakeModel = new HashMap<>();
+        for (Airplane airplane : airplaneManager.getAirplanes()) {
+            airplanesByMakeModel.putIfAbsent(airplane.getMakeModel().toUpperCase(Locale.ROOT), airplane);
+        }
+
+        Result[] results = new Result[requests.size()];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // Each worker writes only its own slot, so the output order matches the input order.
+            pool.submit(() -> IntStream.range(0, results.length).parallel().forEach(i ->
+                    results[i] = planOne(requests.get(i), airports, airplanesByMakeModel)
+            )).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch planning was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch planning failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return Arrays.asList(results);
+    }
+
+    // Plans a single request; any failure becomes an error result. Also used by PlanningService.
+    static Result planOne(Request request, AirportManager.Snapshot airports, Map<String, Airplane> airplanesByMakeModel) {
+        try {
+            if (request == null) {
+                return new Result(null, null, "Request is missing.");
+            }
+            Airport start = lookup(airports, request.getStartICAO());
+            if (start == null) {
+                return new Result(request, null, "Unknown starting airport: " + request.getStartICAO());
+            }
+            Airport destination = lookup(airports, request.getDestinationICAO());
+            if (destination == null) {
+                return new Result(request, null, "Unknown destination airport: " + request.getDestinationICAO());
+            }
+            Airplane airplane = lookup(airplanesByMakeModel, request.getAirplaneMakeModel());
+            if (airplane == null) {
+                return new Result(request, null, "Unknown airplane: " + request.getAirplaneMakeModel());
+            }
+            return new Result(request, FlightPlanning.planFlight(start, destination, airplane, airports.getSpatialIndex()), null);
+        } catch (RuntimeException e) {
+            return new Result(request, null, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private static Airport lookup(AirportManager.Snapshot airports, String ICAO) {
+        return ICAO == null ? null : airports.searchAirport(ICAO.trim());
+    }
+
+    private static <T> T lookup(Map<String, T> map, String key) {
+        return key == null ? null : map.get(key.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,367 @@
+package src;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark suite for the planning, search and persistence hot paths, so every performance
+ * change can be measured against a baseline.
+ * Each benchmark runs against synthetic airport databases of several sizes. A benchmark is
+ * warmed up first (so the JIT has compiled it), then measured over several rounds; the report
+ * gives the mean time per operation and the spread between rounds.
+ *
+ * Usage: java -Xmx4g src.Benchmarks [sizes] [name filter]
+ *   sizes:  comma-separated airport counts (default 70,1000,10000,100000,1000000)
+ *   filter: only run benchmarks whose name contains this text
+ *
+ *        java src.Benchmarks check
+ *   compares the BulkHaversine kernels with the scalar formula and exits with status 1 if any
+ *   distance is off by more than BulkHaversine.TOLERANCE_MILES
+ */
+public class Benchmarks {
+    private static final int[] DEFAULT_SIZES = {70, 1_000, 10_000, 100_000, 1_000_000};
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long ROUND_NANOS = 500_000_000L;
+    private static final int ROUNDS = 5;
+    private static final int PAIRS = 64; // Distinct inputs cycled through by each benchmark
+    private static final int REACHABILITY_MAX_SIZE = 100_000; // One findReachable op covers the whole database
+    private static final int STOP_MATRIX_MAX_SIZE = 10_000;  // The matrix holds size * size bytes
+    private static final int RANGE_GRAPH_MAX_SIZE = 10_000;  // The legs of a prop grow with size^2
+    private static final int CHECK_ORIGINS = 200;           // Origins tried by the check mode
+    private static final int CHECK_TARGETS = 10_000;        // Random targets per origin, plus ones next to it and its antipode
+
+    // Results are folded into this field so the JIT cannot drop the benchmarked work
+    private static volatile long sink;
+
+    // One benchmark operation; i is the invocation number, used to cycle through inputs
+    private interface Operation {
+        Object run(int i) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("check")) {
+            if (!checkBulkHaversine()) System.exit(1);
+            return;
+        }
+        int[] sizes = args.length > 0 ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray() : DEFAULT_SIZES;
+        String filter = args.length > 1 ? args[1] : "";
+
+        System.out.printf("%-34s %10s %14s %10s %10s%n", "Benchmark", "Airports", "ns/op", "+/- %", "ops");
+        for (int size : sizes) {
+            runSize(size, filter);
+        }
+    }
+
+    // Builds the synthetic data for one size and runs every benchmark against it.
+    private static void runSize(int size, String filter) throws Exception {
+        Random random = new Random(size);
+        List<Airport> airports = syntheticAirports(size, random);
+        AirportSpatialIndex airportIndex = new AirportSpatialIndex(airports);
+        Airplane airplane = new Airplane("Benchmark Jet", "Jet", 2.0, 3200.0, 6295.0, 606.0); // Same as the Boeing 737 entry
+        double range = airplane.getMaxRange();
+
+        // Pick input pairs: nonstop pairs are within range, refuel pairs need at least two legs and have a route.
+        Airport[][] nonstop = new Airport[PAIRS][];
+        Airport[][] refuel = new Airport[PAIRS][];
+        int nonstopCount = 0;
+        int refuelCount = 0;
+        for (int attempt = 0; attempt < 20_000 && (nonstopCount < PAIRS || refuelCount < PAIRS); attempt++) {
+            Airport a = airports.get(random.nextInt(size));
+            Airport b = airports.get(random.nextInt(size));
+            double distance = FlightPlanning.calculateHaversineDistance(a, b);
+            if (a == b) continue;
+            if (distance <= range && nonstopCount < PAIRS) {
+                nonstop[nonstopCount++] = new Airport[] {a, b};
+            } else if (distance > 2 * range && refuelCount < PAIRS
+                    && FlightRouter.findRoute(a, b, airplane, airportIndex, FlightRouter.Objective.MIN_DISTANCE) != null) {
+                refuel[refuelCount++] = new Airport[] {a, b};
+            }
+        }
+        Airport[][] nonstopPairs = Arrays.copyOf(nonstop, nonstopCount);
+        Airport[][] refuelPairs = Arrays.copyOf(refuel, refuelCount);
+
+        // Planning
+        if (nonstopPairs.length > 0) {
+            run("planFlight (nonstop)", size, filter, i -> {
+                Airport[] pair = nonstopPairs[i % nonstopPairs.length];
+                return FlightPlanning.planFlight(pair[0], pair[1], airplane, airportIndex);
+            });
+        }
+        if (refuelPairs.length > 0) {
+            run("planFlight (multi-refuel)", size, filter, i -> {
+                Airport[] pair = refuelPairs[i % refuelPairs.length];
+                return FlightPlanning.planFlight(pair[0], pair[1], airplane, airportIndex);
+            });
+        }
+        Airport[][] anyPairs = nonstopPairs.length > 0 ? nonstopPairs : refuelPairs;
+        run("calculateHaversineDistance", size, filter, i -> {
+            Airport[] pair = anyPairs[i % anyPairs.length];
+            return FlightPlanning.calculateHaversineDistance(pair[0], pair[1]);
+        });
+        run("calculateHeading", size, filter, i -> {
+            Airport[] pair = anyPairs[i % anyPairs.length];
+            return FlightPlanning.calculateHeading(pair[0], pair[1]);
+        });
+        AirportTable table = airportIndex.getTable();
+        int[] fromRows = random.ints(PAIRS, 0, size).toArray();
+        int[] toRows = random.ints(PAIRS, 0, size).toArray();
+        run("AirportTable.distance (rows)", size, filter, i -> table.distance(fromRows[i % PAIRS], toRows[i % PAIRS]));
+        run("DistanceCache.distance (rows)", size, filter, i -> table.getDistanceCache().distance(fromRows[i % PAIRS], toRows[i % PAIRS]));
+        if (size <= REACHABILITY_MAX_SIZE) {
+            Airplane prop = new Airplane("Benchmark Prop", "Prop", 1.0, 9.0, 53.0, 123.0); // Same as the Cessna 172 entry
+            run("findReachable (prop, 2 stops)", size, filter, i ->
+                    Reachability.findReachable(anyPairs[i % anyPairs.length][0], prop, airportIndex, 2));
+            run("findReachable (jet, 2 stops)", size, filter, i ->
+                    Reachability.findReachable(anyPairs[i % anyPairs.length][0], airplane, airportIndex, 2));
+        }
+        if (size <= STOP_MATRIX_MAX_SIZE && refuelPairs.length > 0
+                && ("countstops (router)".contains(filter.toLowerCase(Locale.ROOT))
+                    || "countstops (stop matrix)".contains(filter.toLowerCase(Locale.ROOT)))) {
+            StopMatrix stopMatrix = StopMatrix.build(airportIndex, List.of(airplane)); // Only built when its benchmarks run
+            run("countStops (router)", size, filter, i -> {
+                Airport[] pair = refuelPairs[i % refuelPairs.length];
+                return FlightPlanning.countStops(pair[0], pair[1], airplane, airportIndex);
+            });
+            airportIndex.getTable().setStopMatrix(stopMatrix);
+            run("countStops (stop matrix)", size, filter, i -> {
+                Airport[] pair = refuelPairs[i % refuelPairs.length];
+                return FlightPlanning.countStops(pair[0], pair[1], airplane, airportIndex);
+            });
+            airportIndex.getTable().setStopMatrix(null); // The other benchmarks measure the router
+        }
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = airports.get(i).getLatitude();
+            longitudes[i] = airports.get(i).getLongitude();
+        }
+        double[] distances = new double[size];
+        run("distances one-to-all (scalar)", size, filter, i -> {
+            Airport from = anyPairs[i % anyPairs.length][0];
+            BulkHaversine.distancesScalar(from.getLatitude(), from.getLongitude(), latitudes, longitudes, distances);
+            return distances;
+        });
+        run(BulkHaversine.isVectorized() ? "distances one-to-all (bulk, vector)" : "distances one-to-all (bulk)", size, filter, i -> {
+            Airport from = anyPairs[i % anyPairs.length][0];
+            airportIndex.distancesFrom(from.getLatitude(), from.getLongitude(), distances);
+            return distances;
+        });
+        int[] nearestRows = new int[10];
+        double[] nearestMiles = new double[10];
+        run("findNearest (k=10, fuel + range)", size, filter, i -> {
+            Airport from = anyPairs[i % anyPairs.length][0];
+            return airportIndex.findNearest(from.getLatitude() + 0.5, from.getLongitude() - 0.5, 10,
+                    airplane.getFuelMask(), range, nearestRows, nearestMiles);
+        });
+        if (size <= RANGE_GRAPH_MAX_SIZE) {
+            double propRange = 53.0 / 9.0 * 123.0; // Cessna 172 entry
+            run("RangeGraph (full build)", size, filter, i -> {
+                RangeGraph graph = new RangeGraph(propRange);
+                for (Airport airport : airports) graph.airportChanged(null, airport);
+                return graph;
+            });
+            RangeGraph graph = new RangeGraph(propRange);
+            for (Airport airport : airports) graph.airportChanged(null, airport);
+            Airport[][] moves = new Airport[PAIRS][];
+            for (int i = 0; i < PAIRS; i++) {
+                Airport original = airports.get(random.nextInt(size));
+                Airport moved = new Airport(original.getAirportName(), original.getLatitude() + 1, original.getLongitude() - 1,
+                        original.getRadioFrequencies(), original.getRegionState(), original.getRegionAbbr(),
+                        original.getCity(), original.getICAO(), original.getFuelTypes());
+                moves[i] = new Airport[] {original, moved};
+            }
+            run("RangeGraph (move one airport)", size, filter, i -> {
+                Airport[] move = moves[i % PAIRS];
+                boolean back = (i / PAIRS) % 2 == 1; // Every second pass moves the airports back
+                graph.airportChanged(back ? move[1] : move[0], back ? move[0] : move[1]);
+                return graph;
+            });
+        }
+        Flight flight = FlightPlanning.planFlight(anyPairs[0][0], anyPairs[0][1], airplane, airportIndex);
+        run("Flight.getFlightPlanDetails", size, filter, i -> flight.getFlightPlanDetails());
+
+        // Persistence and search go through a real AirportManager on a temporary copy of the data.
+        Path directory = Files.createTempDirectory("airport-benchmark");
+        String csvFileName = directory.resolve("Airport_Database.csv").toString();
+        try {
+            writeCsv(csvFileName, airports);
+            run("loadAirports (CSV)", size, filter, i -> AirportManager.loadAirportsFromCsv(csvFileName));
+            AirportSnapshot.write(csvFileName, airports);
+            run("loadAirports (snapshot)", size, filter, i -> AirportSnapshot.read(csvFileName));
+            run("saveAirports (snapshot)", size, filter, i -> {
+                AirportSnapshot.write(csvFileName, airports);
+                return null;
+            });
+
+            try (AirportManager manager = new AirportManager(csvFileName)) {
+                String[] codes = new String[PAIRS];
+                for (int i = 0; i < PAIRS; i++) {
+                    codes[i] = airports.get(random.nextInt(size)).getICAO();
+                }
+                run("searchAirport (exact ICAO)", size, filter, i -> manager.searchAirport(codes[i % PAIRS]));
+                run("findAirports (partial ICAO)", size, filter, i -> manager.findAirports(AirportTextIndex.Field.ICAO, codes[i % PAIRS].substring(0, 5)));
+                run("findAirports (partial name)", size, filter, i -> manager.findAirports(AirportTextIndex.Field.NAME, "port " + (i % 1000)));
+                Airport[] edits = new Airport[PAIRS];
+                for (int i = 0; i < PAIRS; i++) {
+                    Airport original = manager.searchAirport(codes[i]);
+                    edits[i] = new Airport(original.getAirportName(), original.getLatitude(), original.getLongitude(),
+                            original.getRadioFrequencies(), original.getRegionState(), original.getRegionAbbr(),
+                            original.getCity(), original.getICAO(), 3.0);
+                }
+                run("saveAirports (modify + journal)", size, filter, i -> {
+                    Airport edit = edits[i % PAIRS];
+                    manager.modifyAirport(edit.getICAO(), edit);
+                    return null;
+                });
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /*
+     * Compares the selected BulkHaversine kernel and the plain loops with distancesScalar over random
+     * pairs anywhere on the globe, pairs a few feet to a few miles apart, and pairs next to the antipode.
+     * Returns false (and prints the worst pair) if a difference is larger than TOLERANCE_MILES or a
+     * kernel returns NaN. Pairs the scalar formula itself cannot measure (it returns NaN when rounding
+     * puts the haversine term above 1, at the exact antipode) are counted and skipped.
+     */
+    private static boolean checkBulkHaversine() {
+        Random random = new Random(360);
+        int close = CHECK_TARGETS / 10;
+        double[] latitudes = new double[CHECK_TARGETS + 2 * close];
+        double[] longitudes = new double[latitudes.length];
+        double[] reference = new double[latitudes.length];
+        double[] selected = new double[latitudes.length];
+        double[] plain = new double[latitudes.length];
+        double worstSelected = 0;
+        double worstPlain = 0;
+        int kernelNaNs = 0;
+        int referenceNaNs = 0;
+        String worstPair = "";
+        for (int origin = 0; origin < CHECK_ORIGINS; origin++) {
+            double latitude = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)); // Uniform over the sphere
+            double longitude = random.nextDouble() * 360 - 180;
+            for (int i = 0; i < latitudes.length; i++) {
+                if (i < CHECK_TARGETS) {
+                    latitudes[i] = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+                    longitudes[i] = random.nextDouble() * 360 - 180;
+                } else {
+                    boolean antipode = i >= CHECK_TARGETS + close;
+                    double offset = Math.pow(10, -1 - random.nextInt(6)); // 0.1 to 1e-6 degrees
+                    latitudes[i] = Math.max(-90, Math.min(90, (antipode ? -latitude : latitude) + random.nextGaussian() * offset));
+                    longitudes[i] = (antipode ? longitude + 180 : longitude) + random.nextGaussian() * offset;
+                }
+            }
+            BulkHaversine.Points points = new BulkHaversine.Points(latitudes, longitudes);
+            BulkHaversine.distancesScalar(latitude, longitude, latitudes, longitudes, reference);
+            BulkHaversine.distances(latitude, longitude, points, selected);
+            BulkHaversine.distancesPlain(latitude, longitude, points, plain);
+            for (int i = 0; i < latitudes.length; i++) {
+                if (Double.isNaN(selected[i]) || Double.isNaN(plain[i])) {
+                    kernelNaNs++;
+                    continue;
+                }
+                if (Double.isNaN(reference[i])) {
+                    referenceNaNs++;
+                    continue;
+                }
+                double difference = Math.abs(selected[i] - reference[i]);
+                if (difference > worstSelected) {
+                    worstSelected = difference;
+                    worstPair = String.format(Locale.ROOT, "(%.8f, %.8f) to (%.8f, %.8f): %.9f vs %.9f miles",
+                            latitude, longitude, latitudes[i], longitudes[i], selected[i], reference[i]);
+                }
+                worstPlain = Math.max(worstPlain, Math.abs(plain[i] - reference[i]));
+            }
+        }
+        boolean ok = kernelNaNs == 0
+                && worstSelected <= BulkHaversine.TOLERANCE_MILES && worstPlain <= BulkHaversine.TOLERANCE_MILES;
+        System.out.printf(Locale.ROOT, "BulkHaversine (%s): largest difference %.3g miles, plain loops %.3g miles, tolerance %.3g miles: %s%n",
+                BulkHaversine.isVectorized() ? "Vector API" : "plain loops", worstSelected, worstPlain,
+                BulkHaversine.TOLERANCE_MILES, ok ? "OK" : "FAILED");
+        System.out.printf("%d pairs compared, %d NaN from the kernels, %d skipped (NaN from the scalar formula)%n",
+                CHECK_ORIGINS * latitudes.length, kernelNaNs, referenceNaNs);
+        if (!ok) System.out.println("Worst pair " + worstPair);
+        return ok;
+    }
+
+    // Warms up, then measures one operation for ROUNDS rounds and prints the result.
+    private static void run(String name, int size, String filter, Operation operation) throws Exception {
+        if (!name.toLowerCase(Locale.ROOT).contains(filter.toLowerCase(Locale.ROOT))) return;
+
+        int invocation = 0;
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            consume(operation.run(invocation++));
+        }
+
+        double[] nanosPerOp = new double[ROUNDS];
+        long totalOps = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long ops = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                consume(operation.run(invocation++));
+                ops++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < ROUND_NANOS);
+            nanosPerOp[round] = (double) elapsed / ops;
+            totalOps += ops;
+        }
+
+        double mean = Arrays.stream(nanosPerOp).average().orElse(0);
+        double variance = Arrays.stream(nanosPerOp).map(x -> (x - mean) * (x - mean)).sum() / ROUNDS;
+        System.out.printf("%-34s %10d %14.1f %10.1f %10d%n", name, size, mean, 100 * Math.sqrt(variance) / mean, totalOps);
+    }
+
+    // Folds a result into the sink in constant time: hashCode() would walk a List inside the timed region
+    private static void consume(Object result) {
+        if (result == null) return;
+        if (result instanceof Collection) {
+            sink += ((Collection<?>) result).size();
+        } else if (result instanceof Number) {
+            sink += Double.doubleToRawLongBits(((Number) result).doubleValue());
+        } else {
+            sink += System.identityHashCode(result);
+        }
+    }
+
+    // Random airports spread over the continental United States, most of them with both fuel types.
+    static List<Airport> syntheticAirports(int count, Random random) {
+        List<Airport> airports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            airports.add(new Airport("Synthetic Airport " + i,
+                    25 + random.nextDouble() * 24, -125 + random.nextDouble() * 58,
+                    118.0 + random.nextInt(19), "State " + (i % 50), "S" + (i % 50), "City " + (i % 10_000),
+                    String.format("S%07d", i), random.nextInt(10) == 0 ? 1.0 : 3.0));
+        }
+        return airports;
+    }
+
+    // Writes airports in the layout of "Airport_Database.csv".
+    private static void writeCsv(String fileName, List<Airport> airports) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(fileName)))) {
+            writer.println("Airport Name,Latitude,Longitude,Frequency,Region_State,Region_Abbr.,City,ICAO,Fuel Types");
+            for (Airport airport : airports) {
+                writer.println(airport.getAirportName() + "," + airport.getLatitude() + "," + airport.getLongitude() + ","
+                        + airport.getRadioFrequencies() + "," + airport.getRegionState() + "," + airport.getRegionAbbr() + ","
+                        + airport.getCity() + "," + airport.getICAO() + "," + airport.getFuelTypes());
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package src;
+
+/**
+ * Great-circle distances from one point to many, for jobs that measure one origin against every airport.
+ *
+ * The targets are prepared once as unit vectors (Points). The haversine term is then
+ * a = sin^2(dLat/2) + cos(lat1) cos(lat2) sin^2(dLon/2) = (chord / 2)^2, where the chord is the
+ * straight line between the two unit vectors, so a distance needs no sin/cos per pair:
+ *   pass 1: a = ((x - x0)^2 + (y - y0)^2 + (z - z0)^2) / 4, plain array arithmetic the JIT vectorizes;
+ *   pass 2: distance = 2 R asin(sqrt(a)), the same angle as 2 R atan2(sqrt(a), sqrt(1 - a)).
+ * The chord is taken from the coordinate differences (not 1 - dot product), so short distances
+ * keep their precision.
+ *
+ * The results agree with FlightPlanning.calculateHaversineDistance to within TOLERANCE_MILES.
+ * Measured over random, near-identical and near-antipodal pairs: at most 3e-11 miles apart up to
+ * 12,000 miles, and up to 2e-4 miles within a few feet of the antipode, where sqrt(1 - a) in the
+ * existing formula loses precision (at the exact antipode it even returns NaN, while these kernels
+ * do not).
+ *
+ * When the JVM runs with --add-modules jdk.incubator.vector, both passes run on the Vector API
+ * (BulkHaversineVector, kept in the separate source folder vector/src because it only compiles with
+ * that flag, and loaded by name). Otherwise, or with -DbulkHaversine.vector=false, the two passes are
+ * plain loops; the JIT vectorizes pass 1 by itself. distancesScalar is the loop over the existing
+ * formula, kept as the reference. "java src.Benchmarks check" compares both kernels with it.
+ *
+ * Build with the Vector API:
+ *   javac --add-modules jdk.incubator.vector -d out src/*.java vector/src/*.java
+ *   java --add-modules jdk.incubator.vector -cp out ...
+ */
+public final class BulkHaversine {
+    static final double EARTH_RADIUS_MILES = 3959; // Same radius used by FlightPlanning
+
+    public static final double TOLERANCE_MILES = 1e-3; // Largest difference from the scalar formula (about 5 feet)
+
+    // Both passes for the first count targets, from the origin's unit vector (x0, y0, z0)
+    interface Kernel {
+        void distances(double x0, double y0, double z0, double[] xs, double[] ys, double[] zs, int count, double[] out);
+    }
+
+    private static final Kernel PLAIN = BulkHaversine::plainLoops;
+    private static final Kernel KERNEL = loadKernel();
+
+    private BulkHaversine() {
+    }
+
+    // The Vector API kernel when its module is present and the class was compiled, else the plain loops
+    private static Kernel loadKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("bulkHaversine.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return PLAIN;
+        }
+        try {
+            return (Kernel) Class.forName("src.BulkHaversineVector").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return PLAIN;
+        }
+    }
+
+    // Returns true if distances run on the Vector API
+    public static boolean isVectorized() {
+        return KERNEL != PLAIN;
+    }
+
+    /**
+     * Target points prepared for the bulk kernel. The input arrays are copied.
+     */
+    public static final class Points {
+        final double[] xs;
+        final double[] ys;
+        final double[] zs;
+
+        /**
+         * @param latitudes: latitudes in degrees
+         * @param longitudes: longitudes in degrees, in the same order
+         */
+        public Points(double[] latitudes, double[] longitudes) {
+            if (latitudes == null || longitudes == null || latitudes.length != longitudes.length) {
+                throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+            }
+            int n = latitudes.length;
+            xs = new double[n];
+            ys = new double[n];
+            zs = new double[n];
+            for (int i = 0; i < n; i++) {
+                double lat = Math.toRadians(latitudes[i]);
+                double lon = Math.toRadians(longitudes[i]);
+                xs[i] = Math.cos(lat) * Math.cos(lon);
+                ys[i] = Math.cos(lat) * Math.sin(lon);
+                zs[i] = Math.sin(lat);
+            }
+        }
+
+        public int size() {
+            return xs.length;
+        }
+    }
+
+    /**
+     * Distances in miles from one point to every target point.
+     * @param latitude: latitude of the origin in degrees
+     * @param longitude: longitude of the origin in degrees
+     * @param points: the targets
+     * @param out: receives the distance to target i at index i (at least points.size() long)
+     */
+    public static void distances(double latitude, double longitude, Points points, double[] out) {
+        if (out.length < points.size()) {
+            throw new IllegalArgumentException("The result array must hold a distance per point.");
+        }
+        distances(latitude, longitude, points.xs, points.ys, points.zs, points.size(), out);
+    }
+
+    // Same as above on unit vector arrays (shared with AirportSpatialIndex), for the first count entries
+    static void distances(double latitude, double longitude, double[] xs, double[] ys, double[] zs, int count, double[] out) {
+        distances(KERNEL, latitude, longitude, xs, ys, zs, count, out);
+    }
+
+    // Same as above with the plain loops, whatever kernel is selected (for Benchmarks check)
+    static void distancesPlain(double latitude, double longitude, Points points, double[] out) {
+        distances(PLAIN, latitude, longitude, points.xs, points.ys, points.zs, points.size(), out);
+    }
+
+    private static void distances(Kernel kernel, double latitude, double longitude,
+                                  double[] xs, double[] ys, double[] zs, int count, double[] out) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        kernel.distances(Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat), xs, ys, zs, count, out);
+    }
+
+    private static void plainLoops(double x0, double y0, double z0, double[] xs, double[] ys, double[] zs, int count, double[] out) {
+        // Pass 1: the haversine term, arithmetic only
+        for (int i = 0; i < count; i++) {
+            double dx = xs[i] - x0;
+            double dy = ys[i] - y0;
+            double dz = zs[i] - z0;
+            out[i] = (dx * dx + dy * dy + dz * dz) * 0.25;
+        }
+        // Pass 2: the angle. Past a quarter circle asin loses precision, so the angle is taken from
+        // the chord to the origin's antipode instead.
+        for (int i = 0; i < count; i++) {
+            out[i] = angleDistance(out[i], x0, y0, z0, xs[i], ys[i], zs[i]);
+        }
+    }
+
+    // Pass 2 for one target: the distance for haversine term a (also used for the Vector API kernel's tail)
+    static double angleDistance(double a, double x0, double y0, double z0, double x, double y, double z) {
+        if (a <= 0.5) {
+            return 2 * EARTH_RADIUS_MILES * Math.asin(Math.sqrt(a));
+        }
+        double sx = x + x0;
+        double sy = y + y0;
+        double sz = z + z0;
+        return EARTH_RADIUS_MILES * (Math.PI - 2 * Math.asin(Math.min(1, Math.sqrt(sx * sx + sy * sy + sz * sz) * 0.5)));
+    }
+
+    /**
+     * Reference loop: the existing Haversine formula for every pair, with the origin's conversion done once.
+     * @param latitudes: target latitudes in degrees
+     * @param longitudes: target longitudes in degrees, in the same order
+     * @param out: receives the distance to target i at index i
+     */
+    public static void distancesScalar(double latitude, double longitude, double[] latitudes, double[] longitudes, double[] out) {
+        if (latitudes.length != longitudes.length || out.length < latitudes.length) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        for (int i = 0; i < latitudes.length; i++) {
+            double targetLat = Math.toRadians(latitudes[i]);
+            out[i] = AirportTable.haversine(lat, lon, cosLat, targetLat, Math.toRadians(longitudes[i]), Math.cos(targetLat));
+        }
+    }
+}
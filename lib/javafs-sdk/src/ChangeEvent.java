@@ -0,0 +1,36 @@
+package src;
+
+/**
+ * One change to a managed record (an Airport or an Airplane), with the record before and after.
+ * Delivered in batches by ChangeStream.
+ */
+public final class ChangeEvent<T> {
+    public enum Kind { ADDED, MODIFIED, REMOVED }
+
+    private final Kind kind;
+    private final T before;
+    private final T after;
+
+    /**
+     * @param before: the record as it was, or null if it was just added
+     * @param after: the record as it is now, or null if it was just removed
+     */
+    public ChangeEvent(T before, T after) {
+        if (before == null && after == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        this.kind = before == null ? Kind.ADDED : after == null ? Kind.REMOVED : Kind.MODIFIED;
+        this.before = before;
+        this.after = after;
+    }
+
+    //Getter methods
+    public Kind getKind() { return kind; }
+    public T getBefore() { return before; }
+    public T getAfter() { return after; }
+
+    @Override
+    public String toString() {
+        return kind + " " + (after != null ? after : before);
+    }
+}
@@ -0,0 +1,422 @@
+package src;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for one CSV database file.
+ * Instead of rewriting the whole CSV after every edit, the managers append one small
+ * record (add, modify or remove) to "<csv file>.journal". On load the CSV is read first
+ * and the journal is replayed on top of it. Once the journal grows past a size threshold,
+ * the current data is written to a temporary CSV in the background, moved over the old
+ * CSV in one step, and the records it now contains are cut from the journal. If the CSV was
+ * changed by someone else since it was read, compaction waits until the manager has reloaded it
+ * (see setKnownCsvStamp), so an edit dropped in from outside is never overwritten unread.
+ *
+ * Records are text lines "op<TAB>key<TAB>csv row<TAB>checksum". Tabs, line breaks and backslashes
+ * inside the key and the row are escaped (\t, \n, \r, \\), so a quoted CSV field with a line break
+ * stays in one record. The checksum is the CRC32 of the rest of the line; replay skips a record whose
+ * checksum does not match and a last record without its line break (torn by a crash). The managers replay each record as an
+ * assignment that does not depend on the data before it: a remove deletes its key, an add or
+ * modify deletes its key and stores the row under the row's own key (replacing whatever has that
+ * key, including an earlier rename). So the last record for a key decides its value, and replaying
+ * records that a compacted CSV already contains gives the same data. A crash between replacing the
+ * CSV and trimming the journal therefore does no harm.
+ */
+public class ChangeJournal {
+
+    /**
+     * When journal writes are forced to disk.
+     */
+    public enum FsyncPolicy {
+        ALWAYS, // Every record is written and fsync'ed before the edit returns
+        GROUP,  // Records are buffered and written + fsync'ed together every few milliseconds
+        NEVER   // Every record is written, and the operating system decides when to flush
+    }
+
+    /**
+     * Operation stored in a journal record.
+     */
+    public enum Op { ADD, MODIFY, REMOVE }
+
+    /**
+     * Receives the journal records during replay.
+     */
+    public interface RecordHandler {
+        void apply(Op op, String key, String row);
+    }
+
+    // Defaults can be changed with -Djournal.fsync=ALWAYS|GROUP|NEVER, -Djournal.groupMillis and -Djournal.compactBytes
+    private static final FsyncPolicy DEFAULT_POLICY =
+            FsyncPolicy.valueOf(System.getProperty("journal.fsync", "GROUP").toUpperCase(Locale.ROOT));
+    private static final long DEFAULT_GROUP_MILLIS = Long.getLong("journal.groupMillis", 20);
+    private static final long DEFAULT_COMPACT_BYTES = Long.getLong("journal.compactBytes", 1024 * 1024);
+
+    private final Path csvFile;
+    private final Path journalFile;
+    private final String csvHeader;
+    private final FsyncPolicy policy;
+    private final long compactThresholdBytes;
+    private final long groupMillis;
+    private ScheduledExecutorService background; // Set by start()
+    private Thread shutdownHook;                 // Writes out buffered records when the program exits normally
+
+    private FileChannel channel;
+    private final StringBuilder pending = new StringBuilder(); // GROUP policy: records not written yet
+    private long size;                                         // Journal length in bytes, including pending records
+    private boolean compacting;
+    private boolean closed;
+    private volatile String writtenCsvStamp; // Size and modification time of the CSV the last compaction wrote
+    private volatile String knownCsvStamp;   // Size and modification time of the CSV the data is based on
+
+    /**
+     * Opens the journal next to the CSV file with the default policy and threshold.
+     */
+    public static ChangeJournal open(String csvFileName, String csvHeader) {
+        return open(csvFileName, csvHeader, DEFAULT_POLICY, DEFAULT_GROUP_MILLIS, DEFAULT_COMPACT_BYTES);
+    }
+
+    /**
+     * Opens the journal and starts its background thread; call close() when done with it.
+     * @param csvFileName: the CSV database this journal belongs to
+     * @param csvHeader: header row written at the top of the CSV when compacting
+     * @param policy: when records are forced to disk
+     * @param groupMillis: how often buffered records are written with the GROUP policy
+     * @param compactThresholdBytes: journal size after which it is folded back into the CSV
+     */
+    public static ChangeJournal open(String csvFileName, String csvHeader, FsyncPolicy policy, long groupMillis,
+                                     long compactThresholdBytes) {
+        ChangeJournal journal = new ChangeJournal(csvFileName, csvHeader, policy, groupMillis, compactThresholdBytes);
+        journal.start();
+        return journal;
+    }
+
+    private ChangeJournal(String csvFileName, String csvHeader, FsyncPolicy policy, long groupMillis, long compactThresholdBytes) {
+        this.csvFile = Path.of(csvFileName);
+        this.journalFile = Path.of(csvFileName + ".journal");
+        this.csvHeader = csvHeader;
+        this.policy = policy;
+        this.groupMillis = groupMillis;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.knownCsvStamp = stamp(csvFile); // The managers read the CSV right after opening the journal
+        try {
+            this.size = Files.exists(journalFile) ? Files.size(journalFile) : 0;
+        } catch (IOException e) {
+            System.out.println("Error reading journal " + journalFile + ": " + e.getMessage());
+        }
+    }
+
+    // Starts the background thread and registers the shutdown hook (once the journal is fully built)
+    private synchronized void start() {
+        String threadName = "journal-" + csvFile.getFileName();
+        background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (policy == FsyncPolicy.GROUP) {
+            background.scheduleWithFixedDelay(this::flushQuietly, groupMillis, groupMillis, TimeUnit.MILLISECONDS);
+        }
+        shutdownHook = new Thread(this::flushQuietly);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Writes any buffered records, waits for a running compaction and releases the background
+     * thread and the shutdown hook. The journal must not be used afterwards.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        background.shutdown(); // Cancels the GROUP flushes; a compaction that already started still finishes
+        try {
+            if (!background.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Compaction of " + csvFile + " still running while closing");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            flushQuietly();
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException e) {
+                System.out.println("Error closing journal " + journalFile + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down: the hook runs anyway
+        }
+    }
+
+    /**
+     * Replays every record of the journal, oldest first. Call once while loading, before appending.
+     */
+    public synchronized void replay(RecordHandler handler) {
+        if (!Files.exists(journalFile)) return;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+                applyRecord(line.toString(), handler);
+                line.setLength(0);
+            }
+            if (line.length() > 0) {
+                System.out.println("Dropped incomplete last record of journal " + journalFile);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading journal " + journalFile + ": " + e.getMessage());
+        }
+    }
+
+    // Checks and applies one complete record line (without its line break)
+    private static void applyRecord(String line, RecordHandler handler) {
+        int checksumStart = line.lastIndexOf('\t');
+        String[] parts = checksumStart < 0 ? new String[0] : line.substring(0, checksumStart).split("\t", -1);
+        if (parts.length != 3 || !line.substring(checksumStart + 1).equals(checksum(line.substring(0, checksumStart)))) {
+            System.out.println("Skipped damaged journal record: " + line);
+            return;
+        }
+        try {
+            handler.apply(Op.valueOf(parts[0]), unescape(parts[1]), unescape(parts[2]));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error replaying journal record: " + line);
+        }
+    }
+
+    // Builds the journal line of one record, with its line break
+    private static void appendRecord(StringBuilder out, Op op, String key, String row) {
+        int start = out.length();
+        out.append(op).append('\t');
+        escape(out, key);
+        out.append('\t');
+        escape(out, row);
+        String checksum = checksum(out.substring(start));
+        out.append('\t').append(checksum).append('\n');
+    }
+
+    // Appends text (null as empty) with tabs, line breaks and backslashes escaped
+    private static void escape(StringBuilder out, String text) {
+        if (text == null) return;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '\t': out.append("\\t"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                default: out.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) return text;
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                out.append(c);
+                continue;
+            }
+            char next = text.charAt(++i);
+            out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return out.toString();
+    }
+
+    // CRC32 of a record's text as 8 hex digits
+    private static String checksum(String text) {
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    // Appends one record (the key is the ICAO or make/model the record applies to)
+    public synchronized void append(Op op, String key, String row) {
+        StringBuilder line = new StringBuilder();
+        appendRecord(line, op, key, row);
+        String record = line.toString();
+        pending.append(record);
+        size += record.getBytes(StandardCharsets.UTF_8).length;
+        if (policy != FsyncPolicy.GROUP) {
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Appends one record per key with the same operation, as a single write (used by bulk imports).
+     * @param keys: the key of each record
+     * @param rows: the CSV row of each record, in the same order as the keys
+     */
+    public synchronized void append(Op op, List<String> keys, List<String> rows) {
+        if (keys.isEmpty()) return;
+        StringBuilder records = new StringBuilder(rows.size() * 96);
+        for (int i = 0; i < keys.size(); i++) {
+            appendRecord(records, op, keys.get(i), rows.get(i));
+        }
+        String text = records.toString();
+        pending.append(text);
+        size += text.getBytes(StandardCharsets.UTF_8).length;
+        if (policy != FsyncPolicy.GROUP) {
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Starts a background compaction if the journal has grown past its threshold.
+     * The snapshot is only taken (on the calling thread) when a compaction starts, and must
+     * be a copy of the data that already includes every appended record.
+     * @param snapshot: makes a copy of the current records, in CSV order
+     * @param formatter: converts one record to its CSV row
+     */
+    public synchronized <T> void compactIfNeeded(Supplier<List<T>> snapshot, Function<T, String> formatter) {
+        if (closed || compacting || size < compactThresholdBytes) return;
+        if (isCsvChangedOutside()) return; // Wait for the reload
+        compacting = true;
+        flushQuietly();
+        long coveredBytes = size; // Everything up to here is in the snapshot
+        List<T> records = snapshot.get();
+        background.execute(() -> compact(records, formatter, coveredBytes));
+    }
+
+    // Writes any buffered records and forces them to disk (unless the policy is NEVER).
+    public synchronized void flush() throws IOException {
+        if (pending.length() == 0) return;
+        FileChannel out = channel();
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(pending.toString());
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        pending.setLength(0);
+        if (policy != FsyncPolicy.NEVER) {
+            out.force(false);
+        }
+    }
+
+    // Returns the size and modification time of the CSV file now (take it before reading the file)
+    public String getCsvStamp() {
+        return stamp(csvFile);
+    }
+
+    // Returns true if the CSV file differs from the one the data is based on (edited outside, not reloaded yet)
+    public boolean isCsvChangedOutside() {
+        return !Objects.equals(stamp(csvFile), knownCsvStamp);
+    }
+
+    /**
+     * Records that the data now includes the CSV file as it was when getCsvStamp returned this
+     * stamp (called after a reload). Compaction only replaces a CSV file with the known stamp.
+     */
+    public void setKnownCsvStamp(String stamp) {
+        knownCsvStamp = stamp;
+    }
+
+    /**
+     * Returns true if the CSV file is still exactly the one the last compaction wrote, so a file
+     * watcher can tell our own rewrite from an edit made by someone else.
+     */
+    public boolean wroteCurrentCsv() {
+        String stamp = writtenCsvStamp;
+        return stamp != null && stamp.equals(stamp(csvFile));
+    }
+
+    // Returns "size:modified millis" of a file, or null if it cannot be read
+    private static String stamp(Path file) {
+        try {
+            return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private synchronized void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.out.println("Error writing journal " + journalFile + ": " + e.getMessage());
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    // Runs on the background thread: rewrites the CSV from the snapshot, then drops the covered journal prefix.
+    private <T> void compact(List<T> snapshot, Function<T, String> formatter, long coveredBytes) {
+        try {
+            Path temp = csvFile.resolveSibling(csvFile.getFileName() + ".tmp");
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+                writer.println(csvHeader);
+                for (T item : snapshot) {
+                    writer.println(formatter.apply(item));
+                }
+            }
+            try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                tempChannel.force(true);
+            }
+            String written = stamp(temp); // Taken before the move, which keeps size and time
+            if (isCsvChangedOutside()) {
+                // Edited outside since it was read: keep that file (and the journal) until it is reloaded
+                Files.deleteIfExists(temp);
+                System.out.println("Compaction of " + csvFile + " postponed: the file was changed outside the program");
+                return;
+            }
+            writtenCsvStamp = written;
+            knownCsvStamp = written;
+            Files.move(temp, csvFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dropPrefix(coveredBytes);
+        } catch (IOException e) {
+            System.out.println("Error compacting " + csvFile + ": " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    // Keeps only the records appended after the first coveredBytes bytes of the journal.
+    private synchronized void dropPrefix(long coveredBytes) throws IOException {
+        flush();
+        byte[] all = Files.exists(journalFile) ? Files.readAllBytes(journalFile) : new byte[0];
+        byte[] rest = new byte[(int) Math.max(0, all.length - coveredBytes)];
+        System.arraycopy(all, all.length - rest.length, rest, 0, rest.length);
+
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        Files.write(temp, rest);
+        Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        size = rest.length;
+    }
+}
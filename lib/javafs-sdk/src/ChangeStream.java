@@ -0,0 +1,147 @@
+package src;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Asynchronous, batched stream of the changes a manager makes (see AirportManager.getChangeStream and
+ * AirplaneManager.getChangeStream). Unlike the change listeners, which run on the writer's thread
+ * before the write returns, subscribers are called later on their own virtual thread:
+ * - every write (including a whole bulk import) is published as one batch, in order;
+ * - while a subscriber is still busy, further batches are merged, so it receives everything that
+ *   happened in the meantime in one call;
+ * - publishing only appends to each subscriber's pending list, so a slow subscriber never blocks
+ *   the writer. The backlog is capped: when a write would put a subscriber more than
+ *   changeStream.maxPending events behind, the older pending events are dropped, and the batch with
+ *   that write's events has isOverflow() set. The subscriber should then rebuild its state from the
+ *   manager instead of applying the events. A single write is never split or dropped, however large
+ *   (a bulk import of more than maxPending airports still arrives whole when nothing else is pending).
+ * Each subscriber gets one batch at a time; different subscribers run independently.
+ */
+public final class ChangeStream<T> {
+    // Change with -DchangeStream.maxPending
+    private static final int MAX_PENDING = Integer.getInteger("changeStream.maxPending", 100_000);
+
+    private static final Executor DELIVERY_THREADS = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("change-stream-", 0).factory());
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Receives the batches of a stream
+    public interface Subscriber<T> {
+        void onChanges(Batch<T> batch);
+    }
+
+    /**
+     * The changes delivered in one call, oldest first.
+     */
+    public static final class Batch<T> {
+        private final List<ChangeEvent<T>> events;
+        private final boolean overflow;
+
+        Batch(List<ChangeEvent<T>> events, boolean overflow) {
+            this.events = Collections.unmodifiableList(events);
+            this.overflow = overflow;
+        }
+
+        //Getter methods
+        public List<ChangeEvent<T>> getEvents() { return events; }
+        public int size() { return events.size(); }
+
+        // Returns true if events before the ones in this batch were dropped because the subscriber fell behind
+        public boolean isOverflow() { return overflow; }
+    }
+
+    /**
+     * Subscribes to every change published from now on.
+     * @return the subscription; close it to stop receiving batches
+     */
+    public Subscription subscribe(Subscriber<T> subscriber) {
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        Subscription subscription = new Subscription(subscriber);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Returns true if anyone is subscribed (writers skip building events otherwise)
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Publishes the events of one write as one batch. Called by the manager on the writer's thread;
+     * only appends to the pending lists and starts a delivery thread where none is running.
+     */
+    void publish(List<ChangeEvent<T>> events) {
+        if (events.isEmpty()) return;
+        for (Subscription subscription : subscriptions) {
+            subscription.enqueue(events);
+        }
+    }
+
+    /**
+     * One subscriber's place in the stream.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Subscriber<T> subscriber;
+        private List<ChangeEvent<T>> pending = new ArrayList<>(); // Guarded by this
+        private boolean overflow;   // Guarded by this
+        private boolean delivering; // Guarded by this; true while a delivery thread owns the subscriber
+        private volatile boolean closed;
+
+        private Subscription(Subscriber<T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        // Stops the deliveries; a batch that is already being delivered still finishes
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+        }
+
+        private void enqueue(List<ChangeEvent<T>> events) {
+            synchronized (this) {
+                if (closed) return;
+                if (!pending.isEmpty() && pending.size() + events.size() > MAX_PENDING) {
+                    pending = new ArrayList<>(events); // Drop the backlog; this write still arrives whole
+                    overflow = true;
+                } else {
+                    pending.addAll(events);
+                }
+                if (delivering) return; // The running delivery picks these up next
+                delivering = true;
+            }
+            DELIVERY_THREADS.execute(this::deliver);
+        }
+
+        // Hands the pending events to the subscriber until there are none left
+        private void deliver() {
+            while (true) {
+                Batch<T> batch;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !overflow)) {
+                        delivering = false;
+                        return;
+                    }
+                    batch = new Batch<>(pending, overflow);
+                    pending = new ArrayList<>();
+                    overflow = false;
+                }
+                try {
+                    subscriber.onChanges(batch);
+                } catch (RuntimeException e) {
+                    System.out.println("Error in change subscriber: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package src;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for the CSV database files.
+ * Characters are scanned from a fixed-size char[] window and each record is handed to a
+ * RowHandler as soon as it is complete, so memory use is bounded by the window plus the
+ * longest record, no matter how large the file is. No String is created per line; fields are
+ * ranges of a reused buffer and only become Strings (or doubles) when the handler asks for them.
+ *
+ * Quoting follows RFC 4180: a field starting with " may contain commas, line breaks and
+ * doubled quotes (""). Blank lines and lines starting with "//" are skipped, like before.
+ */
+public final class CsvReader {
+    private static final int WINDOW_SIZE = 64 * 1024;
+    private static final int MAX_FAST_DIGITS = 15; // Below 2^53, so the digits are an exact double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Receives every record of the file. The Row is reused for the next record, so it must not be kept.
+     */
+    public interface RowHandler {
+        void handle(Row row);
+    }
+
+    /**
+     * One parsed record: field ranges inside a shared character buffer.
+     */
+    public static final class Row {
+        private char[] chars = new char[256];
+        private int length;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] quoted = new boolean[16];
+        private int fieldCount;
+        private long lineNumber;
+
+        // Returns the number of fields in this record
+        public int size() { return fieldCount; }
+
+        // Returns the line of the file this record starts on (1 = first line)
+        public long getLineNumber() { return lineNumber; }
+
+        // Returns a field as a String (quotes removed, "" turned into ")
+        public String getString(int field) {
+            checkField(field);
+            return new String(chars, starts[field], ends[field] - starts[field]);
+        }
+
+        /**
+         * Returns a field as a double, parsed directly from the buffer.
+         * Gives exactly the same result as Double.parseDouble on the field text.
+         * @throws NumberFormatException if the field is not a number
+         */
+        public double getDouble(int field) {
+            checkField(field);
+            return parseDouble(chars, starts[field], ends[field]);
+        }
+
+        // Returns a 64-bit hash (FNV-1a) of the field values, so a changed record can be spotted without parsing it
+        public long hash() {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < length; i++) {
+                hash = (hash ^ chars[i]) * 0x100000001B3L;
+            }
+            for (int f = 0; f < fieldCount; f++) {
+                hash = (hash ^ ends[f]) * 0x100000001B3L; // Field boundaries, so "a,bc" and "ab,c" differ
+            }
+            return hash;
+        }
+
+        // Rebuilds the record as one CSV line, for error messages
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < fieldCount; i++) {
+                if (i > 0) line.append(',');
+                line.append(quote(getString(i)));
+            }
+            return line.toString();
+        }
+
+        private void checkField(int field) {
+            if (field < 0 || field >= fieldCount) {
+                throw new IllegalArgumentException("Line " + lineNumber + " has no field " + (field + 1));
+            }
+        }
+
+        private void append(char c) {
+            if (length == chars.length) chars = Arrays.copyOf(chars, length * 2);
+            chars[length++] = c;
+        }
+
+        private void append(char[] source, int from, int count) {
+            if (length + count > chars.length) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + count));
+            System.arraycopy(source, from, chars, length, count);
+            length += count;
+        }
+
+        private void endField(boolean wasQuoted) {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+                quoted = Arrays.copyOf(quoted, fieldCount * 2);
+            }
+            starts[fieldCount] = fieldCount == 0 ? 0 : ends[fieldCount - 1];
+            ends[fieldCount] = length;
+            quoted[fieldCount] = wasQuoted;
+            fieldCount++;
+        }
+
+        // A record that is only whitespace, or a comment starting with "//"
+        private boolean isSkipped() {
+            int i = 0;
+            while (i < length && chars[i] <= ' ') i++;
+            if (i == length) return true;
+            return !quoted[0] && i + 1 < ends[0] && chars[i] == '/' && chars[i + 1] == '/';
+        }
+
+        private void clear(long nextLineNumber) {
+            length = 0;
+            fieldCount = 0;
+            lineNumber = nextLineNumber;
+        }
+    }
+
+    private CsvReader() {
+    }
+
+    /**
+     * Reads every record of a CSV stream and passes it to the handler.
+     * Records that are structurally broken (an unterminated quote) are reported with their line number and skipped.
+     * @param in: the characters to read (not closed by this method)
+     * @param skipHeader: whether the first record is a header row
+     * @param handler: called once per record, in file order
+     * @return the number of records passed to the handler
+     */
+    public static long read(Reader in, boolean skipHeader, RowHandler handler) throws IOException {
+        char[] window = new char[WINDOW_SIZE];
+        Row row = new Row();
+        long line = 1;
+        long records = 0;
+        boolean header = skipHeader;
+        boolean inQuotes = false;
+        boolean quoteInQuotes = false; // Saw a " inside a quoted field; the next character decides what it was
+        boolean fieldQuoted = false;
+        boolean fieldStarted = false;
+        boolean skipLineFeed = false;  // Saw \r, so a following \n belongs to the same line break
+        row.clear(line);
+
+        // Runs of ordinary characters are found with a tight scan and copied in one go;
+        // only the special characters go through the state handling below.
+        int count;
+        while ((count = in.read(window, 0, window.length)) != -1) {
+            int i = 0;
+            while (i < count) {
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (window[i] == '\n') {
+                        i++;
+                        continue;
+                    }
+                }
+
+                if (inQuotes) {
+                    if (quoteInQuotes) {
+                        quoteInQuotes = false;
+                        if (window[i] == '"') { // "" is an escaped quote
+                            row.append('"');
+                            i++;
+                            continue;
+                        }
+                        inQuotes = false; // The quote closed the field; continue with the unquoted handling
+                    } else {
+                        int run = i;
+                        while (i < count && window[i] != '"') {
+                            if (window[i] == '\n') line++;
+                            i++;
+                        }
+                        row.append(window, run, i - run);
+                        if (i < count) {
+                            quoteInQuotes = true;
+                            i++;
+                        }
+                        continue;
+                    }
+                }
+
+                int run = i;
+                char c = 0;
+                while (i < count) {
+                    c = window[i];
+                    if (c == ',' || (c <= '"' && (c == '\n' || c == '\r' || c == '"'))) break; // Most characters fail c <= '"' at once
+                    i++;
+                }
+                if (i > run) {
+                    row.append(window, run, i - run);
+                    fieldStarted = true;
+                }
+                if (i == count) break;
+                i++;
+
+                if (c == ',') {
+                    row.endField(fieldQuoted);
+                    fieldQuoted = false;
+                    fieldStarted = false;
+                } else if (c == '"') {
+                    if (fieldStarted) {
+                        row.append('"'); // A quote in the middle of an unquoted field is kept as is
+                    } else {
+                        inQuotes = true;
+                        fieldQuoted = true;
+                        fieldStarted = true;
+                    }
+                } else { // \n or \r ends the record
+                    row.endField(fieldQuoted);
+                    if (header) {
+                        header = false;
+                    } else if (!row.isSkipped()) {
+                        handler.handle(row);
+                        records++;
+                    }
+                    line++;
+                    row.clear(line);
+                    fieldQuoted = false;
+                    fieldStarted = false;
+                    skipLineFeed = c == '\r';
+                }
+            }
+        }
+
+        // Last record without a line break at the end of the file
+        if (inQuotes && !quoteInQuotes) {
+            System.out.println("Error parsing line " + row.getLineNumber() + ": unterminated quoted field");
+        } else if (row.length > 0 || row.fieldCount > 0 || fieldQuoted) {
+            row.endField(fieldQuoted);
+            if (!header && !row.isSkipped()) {
+                handler.handle(row);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Formats a value as one CSV field, quoting it if it contains a comma, quote or line break.
+     */
+    public static String quote(String value) {
+        if (value == null) return "";
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return needsQuotes ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    /*
+     * Parses a decimal number from a character range without creating a String.
+     * Plain decimals with at most 15 significant digits and 22 fraction digits (every value in
+     * our files) are computed as digits / 10^scale: both are exact doubles, so the one division
+     * is correctly rounded and matches Double.parseDouble. Anything else (exponents, more digits,
+     * NaN, ...) falls back to Double.parseDouble.
+     */
+    static double parseDouble(char[] chars, int from, int to) {
+        while (from < to && chars[from] <= ' ') from++; // Double.parseDouble ignores surrounding whitespace too
+        while (to > from && chars[to - 1] <= ' ') to--;
+
+        int i = from;
+        boolean negative = false;
+        if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long digits = 0;
+        int significantDigits = 0;
+        int scale = 0;
+        boolean anyDigit = false;
+        boolean afterPoint = false;
+        for (; i < to; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                digits = digits * 10 + (c - '0');
+                if (digits != 0) significantDigits++;
+                if (afterPoint) scale++;
+                if (significantDigits > MAX_FAST_DIGITS || scale >= POWERS_OF_TEN.length) break;
+            } else if (c == '.' && !afterPoint) {
+                afterPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (i != to || !anyDigit) {
+            return Double.parseDouble(new String(chars, from, to - from)); // Throws NumberFormatException for bad input
+        }
+        double value = digits / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,64 @@
+package src;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Row-level difference between a CSV database file and the last time it was read (see DataFileWatcher).
+ * The previous read is remembered as a hash per record (CsvReader.Row.hash) with the key of the
+ * record (ICAO or make/model). Reading the file again only tokenizes the records; a record whose
+ * hash is already known is skipped without parsing, so only new or edited rows become objects.
+ * A key whose rows all disappeared from the file is reported as removed.
+ */
+final class CsvRowDiff<T> {
+    private final List<T> changedRecords = new ArrayList<>();
+    private final Set<String> removedKeys = new HashSet<>();
+    private final Map<Long, String> rowKeys = new HashMap<>();
+
+    private CsvRowDiff() {
+    }
+
+    /**
+     * Reads a CSV file and compares it with the previous read.
+     * @param fileName: the CSV file (with a header row)
+     * @param previousRowKeys: row hash -> key of the previous read (getRowKeys() of the last diff); empty
+     *                         for a first read, where every record counts as changed
+     * @param parser: turns a record into an object, or null if it is invalid (invalid rows are ignored)
+     * @param keyOf: returns the key of an object, normalized the way the manager compares keys
+     */
+    static <T> CsvRowDiff<T> read(String fileName, Map<Long, String> previousRowKeys,
+                                  Function<CsvReader.Row, T> parser, Function<T, String> keyOf) throws IOException {
+        CsvRowDiff<T> diff = new CsvRowDiff<>();
+        Set<String> presentKeys = new HashSet<>();
+        try (Reader reader = new FileReader(fileName)) {
+            CsvReader.read(reader, true, row -> {
+                long hash = row.hash();
+                String key = previousRowKeys.get(hash);
+                if (key == null) {
+                    T record = parser.apply(row);
+                    if (record == null) return;
+                    key = keyOf.apply(record);
+                    diff.changedRecords.add(record);
+                }
+                diff.rowKeys.put(hash, key);
+                presentKeys.add(key);
+            });
+        }
+        for (String key : previousRowKeys.values()) {
+            if (!presentKeys.contains(key)) diff.removedKeys.add(key);
+        }
+        return diff;
+    }
+
+    //Getter methods
+    List<T> getChangedRecords() { return changedRecords; }  // New or edited rows, in file order
+    Set<String> getRemovedKeys() { return removedKeys; }    // Keys no row of the file has anymore
+    Map<Long, String> getRowKeys() { return rowKeys; }      // Pass to the next read
+}
@@ -0,0 +1,143 @@
+package src;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the airport and airplane databases while the program runs when their CSV files are
+ * edited outside of it (for example a new vendor file copied over "Airport_Database.csv").
+ *
+ * A daemon thread waits on a WatchService for the directories of both files. Editors often write a
+ * file in several steps, so a change is only read once the file has been quiet for
+ * watcher.debounceMillis. A file whose size and modification time are unchanged is skipped; otherwise
+ * the manager's reloadFromFile re-parses only the rows whose hash changed and applies them in one
+ * write, so listeners and caches only hear about the airports and airplanes that actually changed,
+ * and the airport indexes built on the old snapshot carry over where those changes allow.
+ */
+public final class DataFileWatcher implements AutoCloseable {
+    // Change with -Dwatcher.debounceMillis
+    private static final long DEBOUNCE_MILLIS = Long.getLong("watcher.debounceMillis", 200);
+
+    private final AirportManager airportManager;
+    private final AirplaneManager airplaneManager;
+    private final Path airportFile;
+    private final Path airplaneFile;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final Map<Path, String> stamps = new HashMap<>(); // Size and time of each file when last read; watcher thread only
+
+    /**
+     * Starts watching both database files. Either manager may be null to watch only the other one.
+     * @param airportManager: reloaded when its CSV file changes
+     * @param airplaneManager: reloaded when its CSV file changes
+     */
+    public DataFileWatcher(AirportManager airportManager, AirplaneManager airplaneManager) throws IOException {
+        if (airportManager == null && airplaneManager == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        this.airportManager = airportManager;
+        this.airplaneManager = airplaneManager;
+        this.airportFile = airportManager == null ? null : Path.of(airportManager.getFileName()).toAbsolutePath();
+        this.airplaneFile = airplaneManager == null ? null : Path.of(airplaneManager.getFileName()).toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Set<Path> directories = new HashSet<>();
+        if (airportFile != null) directories.add(airportFile.getParent());
+        if (airplaneFile != null) directories.add(airplaneFile.getParent());
+        for (Path directory : directories) {
+            // Files are often replaced (written to a temporary file and renamed), which shows up as a create
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        this.thread = new Thread(this::run, "data-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops watching
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.out.println("Error closing file watcher: " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        // Remember the files as they are now; only later edits are applied
+        reload(airportFile);
+        reload(airplaneFile);
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                collect(watchService.take(), changed);
+
+                // Wait until no event has arrived for the debounce period
+                WatchKey key;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                for (Path file : changed) {
+                    reload(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed: stop watching
+        }
+    }
+
+    // Adds the database files a watch key reports to the set, and re-arms the key
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                if (airportFile != null) changed.add(airportFile); // Events were lost: check both files
+                if (airplaneFile != null) changed.add(airplaneFile);
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (file.equals(airportFile) || file.equals(airplaneFile)) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    // Reloads one database file if its size or modification time changed since it was last read
+    private void reload(Path file) {
+        if (file == null) return;
+        String stamp;
+        try {
+            stamp = Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return; // Missing, for example between deleting and writing a new copy; the next event brings it back
+        }
+        boolean first = !stamps.containsKey(file);
+        if (stamp.equals(stamps.put(file, stamp))) return;
+
+        try {
+            int changes;
+            if (file.equals(airportFile)) {
+                changes = airportManager.reloadFromFile();
+            } else {
+                changes = airplaneManager.reloadFromFile();
+            }
+            if (!first && changes > 0) {
+                System.out.println("Reloaded " + file.getFileName() + ": " + changes + " changed record(s)");
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Error reloading " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package src;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Loads the airport and airplane databases in parallel on background threads.
+ * Loading starts as soon as the loader is created; the managers are handed out as futures,
+ * so a UI can show itself right away and enable the data functions once isReady() is true.
+ */
+public class DataLoader {
+    // Starts one daemon thread per task, so a slow load never keeps the program from exiting
+    private static final Executor LOADER_THREADS = task -> {
+        Thread thread = new Thread(task, "data-loader");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final long startNanos = System.nanoTime();
+    private final CompletableFuture<AirportManager> airportManager;
+    private final CompletableFuture<AirplaneManager> airplaneManager;
+    private final CompletableFuture<Void> ready;
+    private volatile long loadNanos = -1;
+
+    /**
+     * Starts loading both databases.
+     */
+    public DataLoader() {
+        this.airportManager = CompletableFuture.supplyAsync(AirportManager::new, LOADER_THREADS);
+        this.airplaneManager = CompletableFuture.supplyAsync(AirplaneManager::new, LOADER_THREADS);
+        this.ready = CompletableFuture.allOf(airportManager, airplaneManager)
+                .whenComplete((ignored, error) -> loadNanos = System.nanoTime() - startNanos);
+    }
+
+    //Getter methods for the futures
+    public CompletableFuture<AirportManager> getAirportManager() { return airportManager; }
+    public CompletableFuture<AirplaneManager> getAirplaneManager() { return airplaneManager; }
+
+    // Returns true once both databases loaded successfully
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    // Returns how long loading took in milliseconds, or -1 while it is still running
+    public double getLoadMillis() {
+        long nanos = loadNanos;
+        return nanos < 0 ? -1 : nanos / 1e6;
+    }
+
+    /**
+     * Runs one of the callbacks when loading finishes (on the loader thread, or right away if it already finished).
+     * @param onReady: called when both managers are loaded
+     * @param onError: called with the cause if either load failed
+     */
+    public void whenReady(Runnable onReady, Consumer<Throwable> onError) {
+        ready.whenComplete((ignored, error) -> {
+            if (error == null) {
+                onReady.run();
+            } else {
+                onError.accept(error.getCause() != null ? error.getCause() : error);
+            }
+        });
+    }
+}
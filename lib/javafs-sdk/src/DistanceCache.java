@@ -0,0 +1,247 @@
+package src;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Shared cache of great-circle distance and initial heading between two rows of one AirportTable.
+ * The table never changes, so entries never go stale. A new airport snapshot gets a new table; when
+ * no airport of the old table moved, its cache shares the entries of the old one (see next), otherwise
+ * it starts empty. Get it with AirportTable.getDistanceCache().
+ *
+ * By default the pairs live in a fixed-size open-addressing table of primitive longs: every slot
+ * holds the (from, to) rows packed into one long, the distance, the heading and a check word
+ * (the other three XORed). A key probes the four slots of its bucket; when they are all taken, a
+ * random one is evicted. Readers take no lock: a slot that another thread is rewriting fails the
+ * check and is treated as a miss. The table has a slot for every pair (rounded up to a power of two),
+ * but never more than distanceCache.maxBytes, so a small database gets a small table.
+ *
+ * With -DdistanceCache.dense=true and few enough airports (8 bytes per pair must fit in maxBytes),
+ * two dense float[] matrices are used instead. Entries are filled on first use, or all at once with
+ * materialize(). Floats keep about 7 significant digits (under 0.001 miles anywhere on Earth), so
+ * in this mode distances are no longer bit-identical to FlightPlanning's.
+ */
+public final class DistanceCache {
+    // Defaults can be changed with -DdistanceCache.maxBytes and -DdistanceCache.dense
+    private static final long DEFAULT_MAX_BYTES = Long.getLong("distanceCache.maxBytes", 32L << 20);
+    private static final boolean DEFAULT_DENSE = Boolean.getBoolean("distanceCache.dense");
+
+    private static final int LONGS_PER_SLOT = 4;  // Key, distance bits, heading bits, check
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final int MIN_BUCKETS = 16;
+    private static final int MAX_BUCKETS = 1 << 26; // Largest power of two that keeps the slot array indexable by int
+    private static final long EMPTY = 0;           // Stored keys always have the top bit set
+    private static final long NOT_COMPUTED = Double.doubleToRawLongBits(Double.NaN); // Heading not asked for yet
+
+    private final AirportTable table;
+    private final int n;
+    private final long maxBytes;
+
+    // Sparse mode
+    private final long[] slots;
+    private final int bucketMask;
+
+    // Dense mode (NaN = not computed yet)
+    private final float[] denseDistances;
+    private final float[] denseHeadings;
+
+    /**
+     * Creates a cache with the default memory cap and mode.
+     */
+    public DistanceCache(AirportTable table) {
+        this(table, DEFAULT_MAX_BYTES, DEFAULT_DENSE);
+    }
+
+    /**
+     * @param table: the airports whose rows are cached
+     * @param maxBytes: the most memory the cache may use
+     * @param dense: use dense float matrices when all pairs fit in maxBytes
+     */
+    public DistanceCache(AirportTable table, long maxBytes, boolean dense) {
+        if (table == null || maxBytes < 0) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        this.table = table;
+        this.n = table.size();
+        this.maxBytes = maxBytes;
+        long pairs = (long) n * n;
+        if (dense && pairs * 2 * Float.BYTES <= maxBytes && pairs <= Integer.MAX_VALUE) {
+            denseDistances = new float[(int) pairs];
+            denseHeadings = new float[(int) pairs];
+            Arrays.fill(denseDistances, Float.NaN);
+            Arrays.fill(denseHeadings, Float.NaN);
+            slots = null;
+            bucketMask = 0;
+        } else {
+            int buckets = bucketCount(pairs, maxBytes);
+            slots = new long[buckets * SLOTS_PER_BUCKET * LONGS_PER_SLOT];
+            bucketMask = buckets - 1;
+            denseDistances = null;
+            denseHeadings = null;
+        }
+    }
+
+    // Cache of a new version of previous's table that shares previous's entries
+    private DistanceCache(AirportTable table, DistanceCache previous) {
+        this.table = table;
+        this.n = table.size();
+        this.maxBytes = previous.maxBytes;
+        this.slots = previous.slots;
+        this.bucketMask = previous.bucketMask;
+        this.denseDistances = previous.denseDistances;
+        this.denseHeadings = previous.denseHeadings;
+    }
+
+    /**
+     * Returns a cache for the next version of this cache's table (see AirportTable.next) that keeps the
+     * entries cached so far. Only valid when every row of the old table has the same coordinates in the
+     * new one; both caches then compute the same values, so they can share one set of slots.
+     * @return the cache, or null when rows were added and the new size needs other arrays (dense
+     *         matrices always do; the slots when the new pair count calls for more buckets)
+     */
+    DistanceCache next(AirportTable next) {
+        if (next.size() != n) {
+            long pairs = (long) next.size() * next.size();
+            if (isDense() || bucketCount(pairs, maxBytes) != bucketMask + 1) return null;
+        }
+        return new DistanceCache(next, this);
+    }
+
+    // No more buckets than maxBytes allows, and no more than it takes to hold every pair
+    private static int bucketCount(long pairs, long maxBytes) {
+        long bucketBytes = (long) SLOTS_PER_BUCKET * LONGS_PER_SLOT * Long.BYTES;
+        long capBuckets = Long.highestOneBit(Math.max(1, maxBytes / bucketBytes));
+        long pairBuckets = (pairs + SLOTS_PER_BUCKET - 1) / SLOTS_PER_BUCKET;
+        long pairBucketsRounded = Long.highestOneBit(Math.max(1, Math.min(MAX_BUCKETS, pairBuckets - 1))) << 1;
+        return (int) Math.min(MAX_BUCKETS, Math.max(MIN_BUCKETS, Math.min(capBuckets, pairBucketsRounded)));
+    }
+
+    // Returns true if the dense matrices are used
+    public boolean isDense() {
+        return denseDistances != null;
+    }
+
+    // Returns true if every pair of rows has room in the cache, so repeated lookups mostly hit
+    public boolean holdsAllPairs() {
+        return isDense() || (long) n * n * LONGS_PER_SLOT <= slots.length;
+    }
+
+    // Returns the memory used by the cache arrays in bytes
+    public long getMemoryBytes() {
+        return isDense() ? (long) denseDistances.length * 2 * Float.BYTES : (long) slots.length * Long.BYTES;
+    }
+
+    /**
+     * Great-circle distance in miles between two rows (same value as AirportTable.distance).
+     */
+    public double distance(int from, int to) {
+        if (isDense()) {
+            int cell = from * n + to;
+            float cached = denseDistances[cell];
+            if (cached == cached) return cached; // Not NaN
+            double distance = table.distance(from, to);
+            denseDistances[cell] = (float) distance;
+            denseDistances[to * n + from] = (float) distance; // The formula is symmetric
+            return (float) distance;
+        }
+        long key = key(from, to);
+        int slot = find(key);
+        if (slot >= 0) {
+            long distanceBits = slots[slot + 1];
+            if (isIntact(slot, key, distanceBits, slots[slot + 2])) return Double.longBitsToDouble(distanceBits);
+        }
+        double distance = table.distance(from, to);
+        store(key, Double.doubleToRawLongBits(distance), NOT_COMPUTED);
+        return distance;
+    }
+
+    /**
+     * Initial heading in degrees (0-360) from one row to another (same value as AirportTable.heading).
+     */
+    public double heading(int from, int to) {
+        if (isDense()) {
+            int cell = from * n + to;
+            float cached = denseHeadings[cell];
+            if (cached == cached) return cached;
+            double heading = table.heading(from, to);
+            denseHeadings[cell] = (float) heading;
+            return (float) heading;
+        }
+        long key = key(from, to);
+        int slot = find(key);
+        long distanceBits = NOT_COMPUTED;
+        if (slot >= 0) {
+            long cachedDistance = slots[slot + 1];
+            long headingBits = slots[slot + 2];
+            if (isIntact(slot, key, cachedDistance, headingBits)) {
+                if (headingBits != NOT_COMPUTED) return Double.longBitsToDouble(headingBits);
+                distanceBits = cachedDistance;
+            }
+        }
+        if (distanceBits == NOT_COMPUTED) distanceBits = Double.doubleToRawLongBits(table.distance(from, to));
+        double heading = table.heading(from, to);
+        store(key, distanceBits, Double.doubleToRawLongBits(heading));
+        return heading;
+    }
+
+    /**
+     * Fills every pair of the dense matrices up front (in parallel over rows). Does nothing in sparse mode.
+     */
+    public void materialize() {
+        if (!isDense()) return;
+        IntStream.range(0, n).parallel().forEach(from -> {
+            for (int to = 0; to < n; to++) {
+                int cell = from * n + to;
+                denseDistances[cell] = (float) table.distance(from, to);
+                denseHeadings[cell] = (float) table.heading(from, to);
+            }
+        });
+    }
+
+    // Packs two rows into one key; the top bit marks the slot as used
+    private static long key(int from, int to) {
+        return Long.MIN_VALUE | ((long) from << 31) | to;
+    }
+
+    // Returns the array offset of the slot holding the key, or -1 on a miss (check the values with isIntact)
+    private int find(long key) {
+        int base = bucket(key);
+        for (int i = 0; i < SLOTS_PER_BUCKET; i++) {
+            int slot = base + i * LONGS_PER_SLOT;
+            if (slots[slot] == key) return slot;
+        }
+        return -1;
+    }
+
+    // Returns true if the values read from a slot belong to the key; a slot being rewritten by another thread fails the check
+    private boolean isIntact(int slot, long key, long distanceBits, long headingBits) {
+        return (key ^ distanceBits ^ headingBits) == slots[slot + 3] && slots[slot] == key;
+    }
+
+    // Writes the entry into the key's own slot, a free slot of its bucket, or a random victim
+    private void store(long key, long distanceBits, long headingBits) {
+        int base = bucket(key);
+        int target = -1;
+        for (int i = 0; i < SLOTS_PER_BUCKET; i++) {
+            int slot = base + i * LONGS_PER_SLOT;
+            long current = slots[slot];
+            if (current == key || current == EMPTY) {
+                target = slot;
+                break;
+            }
+        }
+        if (target < 0) {
+            target = base + ThreadLocalRandom.current().nextInt(SLOTS_PER_BUCKET) * LONGS_PER_SLOT;
+        }
+        // No lock and no ordering: a reader that sees a mix of old and new words fails isIntact()
+        slots[target] = key;
+        slots[target + 1] = distanceBits;
+        slots[target + 2] = headingBits;
+        slots[target + 3] = key ^ distanceBits ^ headingBits;
+    }
+
+    private int bucket(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads neighbouring rows
+        return ((int) (hash >>> 32) & bucketMask) * SLOTS_PER_BUCKET * LONGS_PER_SLOT;
+    }
+}
@@ -7,25 +7,88 @@ import java.util.List;
  * estimated time, fuel needs, and determines if refueling stops are necessary.
  */
 public class FlightPlanning {
+    private static volatile AirportSpatialIndex listIndex; // Last index built for a list of airports, see indexOf
 
     // Main method to plan the flight with enhanced refueling check
     public static Flight planFlight(Airport start, Airport destination, Airplane airplane, List<Airport> allAirports) {
         validateInput(start, destination, airplane, allAirports);
+        return planFlight(start, destination, airplane, indexOf(allAirports));
+    }
+
+    // Returns a spatial index over the list: the last one built, as long as the list still holds the same airports
+    // in the same order (checked by identity, so a list edited since is indexed again), or a new one.
+    private static AirportSpatialIndex indexOf(List<Airport> allAirports) {
+        AirportSpatialIndex index = listIndex;
+        if (index == null || !index.getTable().hasRows(allAirports)) {
+            index = new AirportSpatialIndex(allAirports);
+            listIndex = index;
+        }
+        return index;
+    }
+
+    // Same as planFlight above, but reuses an already built spatial index (see AirportManager.getSpatialIndex)
+    public static Flight planFlight(Airport start, Airport destination, Airplane airplane, AirportSpatialIndex airportIndex) {
+        return planFlight(start, destination, airplane, airportIndex, FlightRouter.Objective.MIN_DISTANCE);
+    }
+
+    // Same as planFlight above, on one pinned AirportManager snapshot (safe while other threads edit airports)
+    public static Flight planFlight(Airport start, Airport destination, Airplane airplane, AirportManager.Snapshot airports) {
+        validateInput(start, destination, airplane, airports);
+        return planFlight(start, destination, airplane, airports.getSpatialIndex());
+    }
+
+    // Plans the flight choosing refuel stops for the given objective (fewest miles or fewest stops)
+    public static Flight planFlight(Airport start, Airport destination, Airplane airplane, AirportSpatialIndex airportIndex,
+                                    FlightRouter.Objective objective) {
+        return planFlight(start, destination, airplane, airportIndex, objective, null);
+    }
+
+    // Same as planFlight above; when routeOut is not null, routeOut[0] is set to the route of the flight (see RouteCache)
+    static Flight planFlight(Airport start, Airport destination, Airplane airplane, AirportSpatialIndex airportIndex,
+                             FlightRouter.Objective objective, FlightRouter.Route[] routeOut) {
+        PlanningMetrics.Trace trace = PlanningMetrics.begin(); // null unless metrics or JFR are on (see PlanningMetrics)
+        FlightRouter.Route route = null;
+        try {
+            validateInput(start, destination, airplane, airportIndex);
+            if (trace != null) trace.endStage(PlanningMetrics.Stage.VALIDATION);
+            double distance = calculateHaversineDistance(start, destination); // Computed once for the route and the result
+            if (trace != null) {
+                trace.addHaversines(1);
+                trace.endStage(PlanningMetrics.Stage.DISTANCE);
+            }
+            route = planRoute(start, destination, airplane, airportIndex, objective, distance, trace);
+            Flight flight = buildFlight(start, destination, airplane, route.getStops(), distance);
+            if (trace != null) trace.endStage(PlanningMetrics.Stage.BUILD_RESULT);
+            if (routeOut != null) routeOut[0] = route;
+            return flight;
+        } finally {
+            if (trace != null) trace.finish(start, destination, airplane, route); // route is still null if planning failed
+        }
+    }
 
-        double distance = calculateHaversineDistance(start, destination);
+    // Works out the legs of the flight: nonstop when the destination is within range, otherwise the router's refuel stops
+    private static FlightRouter.Route planRoute(Airport start, Airport destination, Airplane airplane, AirportSpatialIndex airportIndex,
+                                                FlightRouter.Objective objective, double distance, PlanningMetrics.Trace trace) {
+        // Check if a refuel stop is necessary
+        if (distance > airplane.getMaxRange()) {
+            FlightRouter.Route route = findRefuelingAirports(start, destination, airplane, airportIndex, objective, trace);
+            if (trace != null) trace.endStage(PlanningMetrics.Stage.REFUEL_SEARCH);
+            return route;
+        }
+        return new FlightRouter.Route(new ArrayList<>(), distance);
+    }
+
+    // Builds the flight details for a route with the given refuel stops and start to destination distance
+    private static Flight buildFlight(Airport start, Airport destination, Airplane airplane, List<Airport> refuelingAirports, double distance) {
         double airspeedMph = airplane.getAirspeed() * 0.621371; // Convert km/h to mph
         double estimatedTime = distance / (airspeedMph * 0.85);
         double fuelNeeded = estimatedTime * airplane.getFuelBurnRate() * 0.264172; // Convert liters to gallons
         double heading = calculateHeading(start, destination);
         List<String> refuelStops = new ArrayList<>();
-
-        // Check if a refuel stop is necessary
-        if (calculateHaversineDistance(start, destination) > airplane.getMaxRange()) {
-            List<Airport> refuelingAirports = findRefuelingAirports(start, destination, airplane, allAirports);
-            for (Airport refuelAirport : refuelingAirports) {
-                refuelStops.add(refuelAirport.getAirportName());
-            }
+        for (Airport refuelAirport : refuelingAirports) {
+            refuelStops.add(refuelAirport.getAirportName());
         }
+
         Flight flight = new Flight(
             start.getAirportName(),
             destination.getAirportName(),
@@ -38,71 +101,81 @@ public class FlightPlanning {
         );
 
         return flight;
-        
-
     }
 
     // Validate inputs to ensure no null values
-    private static void validateInput(Airport start, Airport destination, Airplane airplane, List<Airport> allAirports) {
-        if (start == null || destination == null || airplane == null || allAirports == null) {
+    private static void validateInput(Airport start, Airport destination, Airplane airplane, Object airportData) {
+        if (start == null || destination == null || airplane == null || airportData == null) {
             throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
         }
     }
 
-    // Filter and find valid refueling airports
-    private static List<Airport> findRefuelingAirports(Airport start, Airport destination, Airplane airplane, List<Airport> allAirports) {
-        List<Airport> refuelRoute = new ArrayList<>();
-        Airport current = start;
-        double maxRange = airplane.getMaxRange();
-    
-        while (calculateHaversineDistance(current, destination) > maxRange) {
-            Airport bestStop = null;
-            double shortestRemaining = Double.MAX_VALUE;
-    
-            for (Airport candidate : allAirports) {
-                if (candidate.equals(current) || candidate.equals(destination) || refuelRoute.contains(candidate)) continue;
-    
-                double distToCandidate = calculateHaversineDistance(current, candidate);
-                double distFromCandidateToDest = calculateHaversineDistance(candidate, destination);
-    
-                if (distToCandidate <= maxRange && isFuelCompatible(airplane, candidate) && distFromCandidateToDest < shortestRemaining) {
-                    bestStop = candidate;
-                    shortestRemaining = distFromCandidateToDest;
-                }
-            }
-    
-            if (bestStop == null) {
-                System.out.println("ERROR: No valid refuel stop from " + current.getAirportName());
-                break;
-            }
-    
-            refuelRoute.add(bestStop);
-            current = bestStop;
+    // Find the refueling stops with the graph router (see FlightRouter).
+    // Throws an IllegalArgumentException when the airplane cannot reach the destination through any chain of stops.
+    // A precomputed stop matrix (see StopMatrix) answers that right away, without searching the whole graph.
+    private static FlightRouter.Route findRefuelingAirports(Airport start, Airport destination, Airplane airplane,
+                                                            AirportSpatialIndex airportIndex, FlightRouter.Objective objective,
+                                                            PlanningMetrics.Trace trace) {
+        StopMatrix stopMatrix = airportIndex.getTable().getStopMatrix();
+        if (stopMatrix != null && stopMatrix.getStops(start, destination, airplane) == StopMatrix.UNREACHABLE) {
+            throw noRoute(start, destination, airplane);
         }
-    
-        return refuelRoute;
+        FlightRouter.Route route = FlightRouter.findRoute(start, destination, airplane, airportIndex, objective, trace);
+        if (route == null) {
+            throw noRoute(start, destination, airplane);
+        }
+        return route;
+    }
+
+    private static IllegalArgumentException noRoute(Airport start, Airport destination, Airplane airplane) {
+        return new IllegalArgumentException("No valid refuel route from " + start.getAirportName()
+                + " to " + destination.getAirportName() + " for " + airplane.getMakeModel());
     }
-    
 
-    // Calculate distance using the Haversine formula
-    private static double calculateHaversineDistance(Airport a, Airport b) {
-        final int R = 3959; // Radius of Earth in miles
+    /**
+     * Fewest refuel stops the airplane needs from start to destination (0 = nonstop), without building the flight.
+     * Constant time when the index's table has a stop matrix for the airplane (see StopMatrix); otherwise
+     * the router searches with Objective.MIN_STOPS.
+     * @return the stop count, or -1 if no chain of refuel stops reaches the destination
+     */
+    public static int countStops(Airport start, Airport destination, Airplane airplane, AirportSpatialIndex airportIndex) {
+        return countStops(start, destination, airplane, airportIndex, null);
+    }
+
+    /**
+     * Same as above, but when the stop matrix cannot answer (none attached yet after an edit, or the airplane
+     * is not covered), a breadth-first search of the range graph replaces the router. The graph follows the
+     * newest airports through change events, so it is only used while it still holds both airports.
+     * @param graph: the legs of the airplane's range (see RangeGraph.attach), or null
+     */
+    public static int countStops(Airport start, Airport destination, Airplane airplane, AirportSpatialIndex airportIndex,
+                                 RangeGraph graph) {
+        validateInput(start, destination, airplane, airportIndex);
+        StopMatrix stopMatrix = airportIndex.getTable().getStopMatrix();
+        if (stopMatrix != null) {
+            int stops = stopMatrix.getStops(start, destination, airplane);
+            if (stops != StopMatrix.UNKNOWN && stops < StopMatrix.MAX_STOPS) return stops; // UNREACHABLE is -1 as well
+        }
+        if (graph != null && graph.getMaxRange() == airplane.getMaxRange()) {
+            int stops = graph.countStops(start, destination, airplane.getFuelMask());
+            if (stops != RangeGraph.UNKNOWN) return stops;
+        }
+        if (calculateHaversineDistance(start, destination) <= airplane.getMaxRange()) return 0;
+        FlightRouter.Route route = FlightRouter.findRoute(start, destination, airplane, airportIndex, FlightRouter.Objective.MIN_STOPS);
+        return route == null ? -1 : route.getStopCount();
+    }
+
+    // Calculate distance using the Haversine formula (shared with AirportTable)
+    static double calculateHaversineDistance(Airport a, Airport b) {
         double lat1 = Math.toRadians(a.getLatitude());
         double lon1 = Math.toRadians(a.getLongitude());
         double lat2 = Math.toRadians(b.getLatitude());
         double lon2 = Math.toRadians(b.getLongitude());
-        double latDistance = lat2 - lat1;
-        double lonDistance = lon2 - lon1;
-
-        double aFormula = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                         + Math.cos(lat1) * Math.cos(lat2)
-                         * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(aFormula), Math.sqrt(1 - aFormula));
-        return R * c;
+        return AirportTable.haversine(lat1, lon1, Math.cos(lat1), lat2, lon2, Math.cos(lat2));
     }
 
     // Calculate the heading from one airport to another
-    private static double calculateHeading(Airport a, Airport b) {
+    static double calculateHeading(Airport a, Airport b) {
         double lat1 = Math.toRadians(a.getLatitude());
         double lat2 = Math.toRadians(b.getLatitude());
         double deltaLon = Math.toRadians(b.getLongitude() - a.getLongitude());
@@ -111,11 +184,9 @@ public class FlightPlanning {
         return (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
     }
 
-    private static boolean isFuelCompatible(Airplane airplane, Airport airport) {
-        return airport.getAvailableFuelTypes().stream().anyMatch(fuel ->
-            (airplane.getFuelType() == 1.0 && fuel.equalsIgnoreCase("Avgas")) ||
-            (airplane.getFuelType() == 2.0 && fuel.equalsIgnoreCase("Jet A"))
-        );
+    // Checks whether the airplane can refuel at the airport (one AND of the decoded fuel bitmasks)
+    static boolean isFuelCompatible(Airplane airplane, Airport airport) {
+        return FuelTypes.compatible(airplane.getFuelMask(), airport.getFuelMask());
     }
     
 }
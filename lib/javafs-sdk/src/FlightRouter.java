@@ -0,0 +1,208 @@
+package src;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds refueling routes between two airports with an A* search.
+ * Airports are the nodes of the graph, and a leg exists when it is within the airplane's
+ * max range and the airplane can refuel at the stop. Legs are discovered on demand through
+ * the spatial index, so the full airport-to-airport graph is never built.
+ */
+public class FlightRouter {
+
+    /**
+     * What the router should minimize.
+     */
+    public enum Objective {
+        MIN_DISTANCE, // Fewest total miles flown
+        MIN_STOPS     // Fewest refuel stops, ties broken by fewest miles
+    }
+
+    /**
+     * Result of a routing query: the refuel stops in order and the total miles flown over all legs.
+     */
+    public static class Route {
+        private final List<Airport> stops;
+        private final double distance;
+
+        public Route(List<Airport> stops, double distance) {
+            this.stops = Collections.unmodifiableList(stops);
+            this.distance = distance;
+        }
+
+        //Getter methods
+        public List<Airport> getStops() { return stops; }
+        public double getDistance() { return distance; }
+        public int getStopCount() { return stops.size(); }
+    }
+
+    private static final double LEG_EPSILON = 1e-9; // Guards the stop heuristic against rounding
+
+    /**
+     * Finds the best route from start to destination.
+     * @param start: the departure airport
+     * @param destination: the arrival airport
+     * @param airplane: the airplane flying the route (range and fuel type)
+     * @param airportIndex: the airports that may be used as refuel stops
+     * @param objective: whether to minimize miles or refuel stops
+     * @return the route, or null if the destination cannot be reached
+     */
+    public static Route findRoute(Airport start, Airport destination, Airplane airplane,
+                                  AirportSpatialIndex airportIndex, Objective objective) {
+        return findRoute(start, destination, airplane, airportIndex, objective, null);
+    }
+
+    // Same as findRoute above; when trace is not null, the search counters are added to it (see PlanningMetrics)
+    static Route findRoute(Airport start, Airport destination, Airplane airplane,
+                           AirportSpatialIndex airportIndex, Objective objective, PlanningMetrics.Trace trace) {
+        int n = airportIndex.size();
+        int startNode = n;           // The start and destination get their own node numbers,
+        int destinationNode = n + 1; // so they do not have to be part of the index.
+        double maxRange = airplane.getMaxRange();
+        boolean minStops = objective == Objective.MIN_STOPS;
+        int fuelMask = airplane.getFuelMask();
+
+        double[] miles = new double[n + 2];
+        int[] legs = new int[n + 2];
+        int[] previous = new int[n + 2];
+        boolean[] closed = new boolean[n + 2];
+        Arrays.fill(miles, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+
+        // Hot loops work on table rows; start and destination are kept as precomputed points
+        // because they do not have to be rows of the table.
+        AirportTable table = airportIndex.getTable();
+        // Legs between two rows come back in later searches. On tables too big for the cache to hold
+        // every pair, the lookups would mostly miss and cost more than the formula, so it is skipped.
+        DistanceCache distances = table.getDistanceCache();
+        boolean cached = distances.holdsAllPairs();
+        boolean rounded = distances.isDense(); // Dense entries are floats, see DistanceCache
+        double startLat = Math.toRadians(start.getLatitude());
+        double startLon = Math.toRadians(start.getLongitude());
+        double startCos = Math.cos(startLat);
+        double destinationLat = Math.toRadians(destination.getLatitude());
+        double destinationLon = Math.toRadians(destination.getLongitude());
+        double destinationCos = Math.cos(destinationLat);
+
+        // Search counters for PlanningMetrics; plain local increments, so they cost next to nothing
+        long expanded = 0;
+        long examined = 0;
+        long haversines = 1;
+
+        PriorityQueue<Entry> open = new PriorityQueue<>();
+        miles[startNode] = 0;
+        double startToDestination = AirportTable.haversine(startLat, startLon, startCos, destinationLat, destinationLon, destinationCos);
+        open.add(entry(startNode, 0, 0, startToDestination, maxRange, minStops));
+
+        while (!open.isEmpty()) {
+            int node = open.poll().node;
+            if (closed[node]) continue; // Stale queue entry
+            closed[node] = true;
+            expanded++;
+
+            if (node == destinationNode) {
+                if (trace != null) trace.addSearch(expanded, examined, haversines);
+                return buildRoute(previous, miles[destinationNode], airportIndex, startNode);
+            }
+
+            boolean atStart = node == startNode;
+            double lat = atStart ? startLat : table.getLatitudeRadians(node);
+            double lon = atStart ? startLon : table.getLongitudeRadians(node);
+            double cos = atStart ? startCos : table.getCosLatitude(node);
+
+            // Leg straight to the destination (no fuel check needed, we do not refuel there)
+            double toDestination = AirportTable.haversine(lat, lon, cos, destinationLat, destinationLon, destinationCos);
+            haversines++;
+            if (toDestination <= maxRange) {
+                relax(node, destinationNode, toDestination, 0, miles, legs, previous, open, maxRange, minStops);
+            }
+
+            // Legs to refuel stops inside the range circle of the current airport. Only the fuel partition
+            // of the airplane is searched, so every candidate can refuel it.
+            int[] candidates = atStart
+                    ? airportIndex.findWithinRadius(start.getLatitude(), start.getLongitude(), maxRange, fuelMask)
+                    : airportIndex.findWithinRadius(table.getLatitude(node), table.getLongitude(node), maxRange, fuelMask);
+            examined += candidates.length;
+            for (int index : candidates) {
+                if (closed[index]) continue;
+                Airport candidate = table.getAirport(index);
+                if (candidate == start || candidate == destination) continue;
+
+                double leg = cached && !atStart ? distances.distance(node, index) : table.distanceFrom(lat, lon, cos, index);
+                haversines++;
+                if (rounded && !atStart && Math.abs(leg - maxRange) <= Math.ulp((float) leg)) {
+                    // Rounding could put a leg at the limit on the wrong side of it: the range test uses the exact distance
+                    leg = table.distance(node, index);
+                    haversines++;
+                }
+                if (leg > maxRange) continue;
+
+                double remaining = table.distanceFrom(destinationLat, destinationLon, destinationCos, index);
+                haversines++;
+                relax(node, index, leg, remaining, miles, legs, previous, open, maxRange, minStops);
+            }
+        }
+        if (trace != null) trace.addSearch(expanded, examined, haversines);
+        return null;
+    }
+
+    // Updates the best known cost of "to" when going through "from" is cheaper.
+    private static void relax(int from, int to, double leg, double remaining, double[] miles, int[] legs, int[] previous,
+                              PriorityQueue<Entry> open, double maxRange, boolean minStops) {
+        double newMiles = miles[from] + leg;
+        int newLegs = legs[from] + 1;
+        boolean better = minStops
+                ? newLegs < legs[to] || miles[to] == Double.POSITIVE_INFINITY || (newLegs == legs[to] && newMiles < miles[to])
+                : newMiles < miles[to];
+        if (!better) return;
+
+        miles[to] = newMiles;
+        legs[to] = newLegs;
+        previous[to] = from;
+        open.add(entry(to, newLegs, newMiles, remaining, maxRange, minStops));
+    }
+
+    // Builds a queue entry. The great-circle distance left is the heuristic for miles,
+    // and the number of full-range legs needed to cover it is the heuristic for stops.
+    private static Entry entry(int node, int legsSoFar, double milesSoFar, double remaining, double maxRange, boolean minStops) {
+        if (!minStops) {
+            return new Entry(node, milesSoFar + remaining, 0);
+        }
+        double legsLeft = remaining <= 0 ? 0 : Math.ceil(remaining / maxRange - LEG_EPSILON);
+        return new Entry(node, legsSoFar + legsLeft, milesSoFar + remaining);
+    }
+
+    // Walks the previous-node links back from the destination to list the refuel stops in order.
+    private static Route buildRoute(int[] previous, double totalMiles, AirportSpatialIndex airportIndex, int startNode) {
+        List<Airport> stops = new ArrayList<>();
+        int node = previous[startNode + 1];
+        while (node != startNode) {
+            stops.add(airportIndex.getAirport(node));
+            node = previous[node];
+        }
+        Collections.reverse(stops);
+        return new Route(stops, totalMiles);
+    }
+
+    // Priority queue entry ordered by primary cost, then secondary cost.
+    private static final class Entry implements Comparable<Entry> {
+        final int node;
+        final double primary;
+        final double secondary;
+
+        Entry(int node, double primary, double secondary) {
+            this.node = node;
+            this.primary = primary;
+            this.secondary = secondary;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Double.compare(primary, other.primary);
+            return result != 0 ? result : Double.compare(secondary, other.secondary);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package src;
+import java.util.List;
+
+/**
+ * Fuel availability as a bitmask.
+ * The "Fuel Types" column of the airport database (1=AVGAS, 2=Jet A, 3=both) and the
+ * "Fuel Type" column of the airplane database (1=AVGAS, 2=Jet A) already use these bits,
+ * so a code decodes straight into a mask and "can this airport fuel this airplane" is a
+ * single AND instead of a string comparison.
+ */
+public final class FuelTypes {
+    public static final int NONE = 0;
+    public static final int AVGAS = 1;
+    public static final int JET_A = 2;
+    public static final int ALL = AVGAS | JET_A;
+
+    // Fuel names per mask, shared so getAvailableFuelTypes() never allocates
+    private static final List<List<String>> NAMES = List.of(
+            List.of(), List.of("Avgas"), List.of("Jet A"), List.of("Avgas", "Jet A"));
+
+    private FuelTypes() {
+    }
+
+    /**
+     * Decodes a fuel code from the databases.
+     * @return the mask, or NONE if the code is missing (NaN) or not a whole number from 0 to 3
+     */
+    public static int decode(double code) {
+        int mask = (int) code;
+        return mask == code && mask >= NONE && mask <= ALL ? mask : NONE;
+    }
+
+    // Returns the names of the fuels in the mask ("Avgas", "Jet A"), as an unmodifiable list
+    public static List<String> names(int mask) {
+        return NAMES.get(mask & ALL);
+    }
+
+    // Returns true if an airport offering airportMask has fuel an airplane using airplaneMask can burn
+    public static boolean compatible(int airplaneMask, int airportMask) {
+        return (airplaneMask & airportMask) != 0;
+    }
+}
@@ -0,0 +1,68 @@
+package src;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import (AirportManager.addAirports, AirplaneManager.addAirplanes):
+ * the records that were added, and the ones that were rejected together with the reason.
+ * Rows are numbered from 1 in the order the records were given.
+ */
+public class ImportResult<T> {
+
+    /**
+     * One record that was not imported.
+     */
+    public static final class Rejection<T> {
+        private final int row;
+        private final T record;
+        private final String reason;
+
+        Rejection(int row, T record, String reason) {
+            this.row = row;
+            this.record = record;
+            this.reason = reason;
+        }
+
+        //Getter methods
+        public int getRow() { return row; }
+        public T getRecord() { return record; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "Row " + row + ": " + reason;
+        }
+    }
+
+    private final List<T> accepted = new ArrayList<>();
+    private final List<Rejection<T>> rejected = new ArrayList<>();
+
+    ImportResult() {
+    }
+
+    void accept(T record) {
+        accepted.add(record);
+    }
+
+    void reject(int row, T record, String reason) {
+        rejected.add(new Rejection<>(row, record, reason));
+    }
+
+    // Puts the rejections in row order (they are found in two passes, see the managers)
+    void sortRejections() {
+        rejected.sort(Comparator.comparingInt(Rejection::getRow));
+    }
+
+    //Getter methods
+    public List<T> getAccepted() { return Collections.unmodifiableList(accepted); }
+    public List<Rejection<T>> getRejected() { return Collections.unmodifiableList(rejected); }
+    public int getAcceptedCount() { return accepted.size(); }
+    public int getRejectedCount() { return rejected.size(); }
+
+    @Override
+    public String toString() {
+        return accepted.size() + " imported, " + rejected.size() + " rejected";
+    }
+}
@@ -1,7 +1,10 @@
 package src;
 
 
+import java.io.IOException;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
@@ -12,10 +15,14 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 public class Main extends Application {
-    private AirportManager airportManager = new AirportManager();
-    private AirplaneManager airplaneManager = new AirplaneManager();
+    private static long launchNanos; // Set first thing in main, for the time-to-first-frame measurement
+
+    // Both databases load in parallel in the background, so the window does not wait for them.
+    private final DataLoader dataLoader = new DataLoader();
+    private DataFileWatcher fileWatcher; // Applies edits made to the CSV files while the program runs
 
     public static void main(String[] args) {
+        launchNanos = System.nanoTime();
         System.setProperty("javafx.runtime.module.path", "csci360_flight_planning/lib/javafx-sdk/lib");
         System.setProperty("javafx.runtime.add.modules", "javafx.controls,javafx.fxml");
         launch(args);
@@ -26,6 +33,7 @@ public class Main extends Application {
         Label warningLabel = new Label(
                 "WARNING: THIS SOFTWARE IS NOT TO BE USED FOR FLIGHT PLANNING OR NAVIGATIONAL PURPOSE");
         warningLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: red;");
+        Label statusLabel = new Label("Loading airport and airplane data...");
 
         Button btnAirport = new Button("Airport Functions");
         Button btnAirplane = new Button("Airplane Functions");
@@ -42,8 +50,24 @@ public class Main extends Application {
         btnPlanFlight.setOnAction(e -> showAlert("Plan Flight: (stub)"));
         btnExit.setOnAction(e -> primaryStage.close());
 
+        // The functions that need the databases stay disabled until both are loaded.
+        btnAirport.setDisable(true);
+        btnAirplane.setDisable(true);
+        btnPlanFlight.setDisable(true);
+        dataLoader.whenReady(
+                () -> Platform.runLater(() -> {
+                    startFileWatcher();
+                    btnAirport.setDisable(false);
+                    btnAirplane.setDisable(false);
+                    btnPlanFlight.setDisable(false);
+                    statusLabel.setText(String.format("Data loaded in %.0f ms", dataLoader.getLoadMillis()));
+                    System.out.printf("Data ready after %.1f ms%n", dataLoader.getLoadMillis());
+                }),
+                error -> Platform.runLater(() -> statusLabel.setText("Error loading data: " + error.getMessage())));
+
         VBox root = new VBox(10,
                 warningLabel,
+                statusLabel,
                 btnAirport,
                 btnAirplane,
                 btnPlanFlight,
@@ -53,6 +77,35 @@ public class Main extends Application {
         primaryStage.setTitle("Flight Planning System");
         primaryStage.setScene(new Scene(root, 400, 300));
         primaryStage.show();
+        reportFirstFrame();
+    }
+
+    /** Starts reloading the databases when their CSV files change on disk. */
+    private void startFileWatcher() {
+        try {
+            fileWatcher = new DataFileWatcher(dataLoader.getAirportManager().join(), dataLoader.getAirplaneManager().join());
+        } catch (IOException e) {
+            System.out.println("Error watching data files: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (fileWatcher != null) {
+            fileWatcher.close();
+        }
+    }
+
+    /** Prints the time from main() to the first pulse that renders the window. */
+    private void reportFirstFrame() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                System.out.printf("Time to first frame: %.1f ms (data %s)%n", (System.nanoTime() - launchNanos) / 1e6,
+                        dataLoader.isReady() ? "already loaded" : "still loading");
+            }
+        }.start();
     }
 
     /** Utility to pop up a simple information alert. */
@@ -0,0 +1,30 @@
+package src;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event written for every planned flight while a recording is running, e.g. with
+ * java -XX:StartFlightRecording=filename=plans.jfr ... The event duration is the whole plan.
+ */
+@Name("src.PlanFlight")
+@Label("Plan Flight")
+@Category("Flight Planning")
+@Description("One FlightPlanning.planFlight call with its per-stage times and search counters")
+class PlanFlightEvent extends Event {
+    @Label("Start") String start;
+    @Label("Destination") String destination;
+    @Label("Airplane") String airplane;
+    @Label("Success") boolean success;
+    @Label("Refuel Stops") int stops;
+    @Label("Nodes Expanded") long nodesExpanded;
+    @Label("Candidates Examined") long candidatesExamined;
+    @Label("Haversine Evaluations") long haversineEvaluations;
+    @Label("Validation") @Timespan long validation;
+    @Label("Distance") @Timespan long distance;
+    @Label("Refuel Search") @Timespan long refuelSearch;
+    @Label("Build Result") @Timespan long buildResult;
+}
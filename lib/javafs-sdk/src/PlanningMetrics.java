@@ -0,0 +1,276 @@
+package src;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Low-overhead counters and latency histograms for FlightPlanning.planFlight.
+ * A plan is split into stages (validation, distance, refuel search, building the result), and
+ * the router reports how many nodes it expanded, candidates it examined and distances it computed.
+ * Results are published through the PlanningMetricsMBean and as PlanFlightEvent JFR events.
+ *
+ * Nothing is measured unless metrics are enabled (-Dplanning.metrics=true or the MBean's Enabled
+ * attribute) or a JFR recording is running: begin() then returns null, and the hot path only pays
+ * for one volatile read and a few null checks.
+ */
+public final class PlanningMetrics implements PlanningMetricsMBean {
+
+    /**
+     * The timed stages of one plan. TOTAL covers the whole call.
+     */
+    public enum Stage { VALIDATION, DISTANCE, REFUEL_SEARCH, BUILD_RESULT, TOTAL }
+
+    private static final PlanningMetrics INSTANCE = new PlanningMetrics();
+    private static volatile boolean enabled = Boolean.getBoolean("planning.metrics");
+    private static volatile boolean jfrRecording;
+
+    private final LongAdder plans = new LongAdder();
+    private final LongAdder failedPlans = new LongAdder();
+    private final LongAdder refuelSearches = new LongAdder();
+    private final LongAdder nodesExpanded = new LongAdder();
+    private final LongAdder candidatesExamined = new LongAdder();
+    private final LongAdder haversineEvaluations = new LongAdder();
+    private final LongAdder hops = new LongAdder();
+    private final Histogram[] stageHistograms = new Histogram[Stage.values().length];
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("src:type=PlanningMetrics"));
+        } catch (Exception | LinkageError e) {
+            System.out.println("Error registering planning metrics MBean: " + e.getMessage());
+        }
+        try {
+            // Track whether any recording is running, without starting JFR ourselves.
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recorderInitialized(FlightRecorder recorder) {
+                    updateRecordingState(recorder); // Catches recordings started with -XX:StartFlightRecording
+                }
+
+                @Override
+                public void recordingStateChanged(Recording recording) {
+                    updateRecordingState(FlightRecorder.getFlightRecorder());
+                }
+            });
+        } catch (Exception | LinkageError e) {
+            System.out.println("JFR is not available, planning events are disabled: " + e.getMessage());
+        }
+    }
+
+    private static void updateRecordingState(FlightRecorder recorder) {
+        boolean running = false;
+        for (Recording recording : recorder.getRecordings()) {
+            running |= recording.getState() == RecordingState.RUNNING;
+        }
+        jfrRecording = running;
+    }
+
+    private PlanningMetrics() {
+        for (int i = 0; i < stageHistograms.length; i++) {
+            stageHistograms[i] = new Histogram();
+        }
+    }
+
+    // Returns the single instance (the registered MBean)
+    public static PlanningMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts measuring one plan.
+     * @return the trace to report stages to, or null when nothing is being collected
+     */
+    static Trace begin() {
+        return enabled || jfrRecording ? new Trace() : null;
+    }
+
+    @Override public boolean isEnabled() { return enabled; }
+    @Override public void setEnabled(boolean value) { enabled = value; }
+
+    //Getter methods for the counters
+    @Override public long getPlans() { return plans.sum(); }
+    @Override public long getFailedPlans() { return failedPlans.sum(); }
+    @Override public long getRefuelSearches() { return refuelSearches.sum(); }
+    @Override public long getNodesExpanded() { return nodesExpanded.sum(); }
+    @Override public long getCandidatesExamined() { return candidatesExamined.sum(); }
+    @Override public long getHaversineEvaluations() { return haversineEvaluations.sum(); }
+    @Override public long getHops() { return hops.sum(); }
+
+    @Override
+    public String[] getStageSummary() {
+        Stage[] stages = Stage.values();
+        String[] lines = new String[stages.length];
+        for (Stage stage : stages) {
+            Histogram histogram = stageHistograms[stage.ordinal()];
+            lines[stage.ordinal()] = String.format(Locale.ROOT, "%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                    stage, histogram.count(), histogram.mean() / 1e3, histogram.percentile(50) / 1e3,
+                    histogram.percentile(99) / 1e3, histogram.percentile(100) / 1e3);
+        }
+        return lines;
+    }
+
+    @Override
+    public double getStagePercentileMicros(String stage, double percentile) {
+        return stageHistograms[Stage.valueOf(stage.toUpperCase(Locale.ROOT)).ordinal()].percentile(percentile) / 1e3;
+    }
+
+    @Override
+    public double getStageMeanMicros(String stage) {
+        return stageHistograms[Stage.valueOf(stage.toUpperCase(Locale.ROOT)).ordinal()].mean() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : new LongAdder[] {plans, failedPlans, refuelSearches, nodesExpanded,
+                candidatesExamined, haversineEvaluations, hops}) {
+            counter.reset();
+        }
+        for (Histogram histogram : stageHistograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Measurements of one plan, filled in by FlightPlanning and FlightRouter on the planning thread.
+     */
+    static final class Trace {
+        private final long startNanos = System.nanoTime();
+        private long stageStartNanos = startNanos;
+        private final long[] stageNanos = new long[Stage.values().length];
+        private final PlanFlightEvent event = new PlanFlightEvent();
+        private long nodesExpanded;
+        private long candidatesExamined;
+        private long haversineEvaluations;
+        private boolean refuelSearch;
+
+        private Trace() {
+            event.begin();
+        }
+
+        // Ends the current stage: the time since the previous endStage (or begin) is added to it
+        void endStage(Stage stage) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - stageStartNanos;
+            stageStartNanos = now;
+        }
+
+        // Adds the counters of one router search
+        void addSearch(long expanded, long candidates, long haversines) {
+            refuelSearch = true;
+            nodesExpanded += expanded;
+            candidatesExamined += candidates;
+            haversineEvaluations += haversines;
+        }
+
+        void addHaversines(long count) {
+            haversineEvaluations += count;
+        }
+
+        /**
+         * Records the finished plan.
+         * @param start, destination, airplane: what was planned (for the JFR event)
+         * @param route: the planned route, or null if planning failed
+         */
+        void finish(Airport start, Airport destination, Airplane airplane, FlightRouter.Route route) {
+            stageNanos[Stage.TOTAL.ordinal()] = System.nanoTime() - startNanos;
+            PlanningMetrics metrics = INSTANCE;
+            metrics.plans.increment();
+            if (route == null) metrics.failedPlans.increment();
+            if (refuelSearch) metrics.refuelSearches.increment();
+            metrics.nodesExpanded.add(nodesExpanded);
+            metrics.candidatesExamined.add(candidatesExamined);
+            metrics.haversineEvaluations.add(haversineEvaluations);
+            if (route != null) metrics.hops.add(route.getStopCount() + 1);
+            for (Stage stage : Stage.values()) {
+                metrics.stageHistograms[stage.ordinal()].record(stageNanos[stage.ordinal()]);
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.start = start == null ? null : start.getICAO();
+                event.destination = destination == null ? null : destination.getICAO();
+                event.airplane = airplane == null ? null : airplane.getMakeModel();
+                event.success = route != null;
+                event.stops = route == null ? 0 : route.getStopCount();
+                event.nodesExpanded = nodesExpanded;
+                event.candidatesExamined = candidatesExamined;
+                event.haversineEvaluations = haversineEvaluations;
+                event.validation = stageNanos[Stage.VALIDATION.ordinal()];
+                event.distance = stageNanos[Stage.DISTANCE.ordinal()];
+                event.refuelSearch = stageNanos[Stage.REFUEL_SEARCH.ordinal()];
+                event.buildResult = stageNanos[Stage.BUILD_RESULT.ordinal()];
+                event.commit();
+            }
+        }
+    }
+
+    /*
+     * Lock-free latency histogram in nanoseconds with log-linear buckets: every power of two is
+     * split into 8 buckets, so a reported value is within about 12% of the real one.
+     */
+    private static final class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int SUB_BITS = 3;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        // Returns the middle of the bucket that holds the given percentile (0 when empty)
+        double percentile(double percentile) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) total += buckets.get(i);
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return (lowerBound(i) + lowerBound(i + 1)) / 2.0;
+                }
+            }
+            return lowerBound(buckets.length());
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+            count.reset();
+            sum.reset();
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);            // value is in [2^exponent, 2^(exponent+1))
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static double lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            int sub = bucket % SUB_BUCKETS;
+            return Math.scalb(1.0 + sub / (double) SUB_BUCKETS, exponent);
+        }
+    }
+}
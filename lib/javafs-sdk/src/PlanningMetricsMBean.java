@@ -0,0 +1,38 @@
+package src;
+
+/**
+ * Management interface of PlanningMetrics, registered as "src:type=PlanningMetrics" on the
+ * platform MBean server (visible in JConsole / VisualVM).
+ * A plan is one FlightPlanning.planFlight call, including the misses of a RouteCache (hits plan
+ * nothing and are counted by the cache itself). Reachability.findReachable searches from one airport
+ * to all others, which is not a plan, so it is not counted here; neither are /stops answers.
+ */
+public interface PlanningMetricsMBean {
+
+    // Turns collection on or off at runtime (also settable with -Dplanning.metrics=true)
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+
+    // Counters since start (or the last reset)
+    long getPlans();
+    long getFailedPlans();
+    long getRefuelSearches();
+    long getNodesExpanded();
+    long getCandidatesExamined();
+    long getHaversineEvaluations();
+    long getHops();
+
+    // One line per stage: count, mean and percentiles in microseconds
+    String[] getStageSummary();
+
+    /**
+     * @param stage: VALIDATION, DISTANCE, REFUEL_SEARCH, BUILD_RESULT or TOTAL
+     * @param percentile: 0 to 100
+     * @return the latency in microseconds (accurate to about 12%)
+     */
+    double getStagePercentileMicros(String stage, double percentile);
+    double getStageMeanMicros(String stage);
+
+    // Clears every counter and histogram
+    void reset();
+}
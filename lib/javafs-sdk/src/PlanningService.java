@@ -0,0 +1,694 @@
+package src;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless HTTP/JSON front end for the flight planner, built on the JDK's com.sun.net.httpserver.
+ * Every request runs on its own virtual thread and reads one pinned airport snapshot plus a
+ * read-only copy of the airplanes, so requests never block each other or the writers.
+ *
+ * Endpoints (all answers are JSON; errors are {"error": "..."}):
+ *   GET  /health                               status, database sizes and whether the stop matrix is attached
+ *   GET  /plan?from=ICAO&to=ICAO&airplane=...  plans one flight (optional objective=MIN_DISTANCE|MIN_STOPS)
+ *   POST /plan/batch                           plans [{"from","to","airplane"}, ...] in order
+ *   GET  /reachable?from=ICAO&airplane=...     airports reachable with at most maxStops refuel stops (default 2)
+ *   GET  /stops?from=ICAO&to=ICAO&airplane=... fewest refuel stops, or reachable=false (see StopMatrix;
+ *                                              while it is rebuilt, a RangeGraph per airplane range)
+ *   GET  /nearest?lat=..&lon=..                the k nearest airports (default 10); with airplane=..., only
+ *                                              ones selling its fuel within its range (diversions)
+ *   GET  /airports/{ICAO}                      one airport
+ *   GET  /airports?field=ICAO|NAME|CITY&q=...  partial search (optional limit, default 100)
+ *   GET  /airplanes                            every airplane
+ *   GET  /airplanes/{make and model}           one airplane
+ *
+ * Backpressure: at most maxConcurrent plans run at once, and at most maxQueued more requests
+ * may wait for a slot. Every item of a batch counts as one more request. Anything beyond that
+ * is answered right away with 429 and Retry-After.
+ *
+ * Usage: java src.PlanningService [port]   (default port 8080, or -Dservice.port)
+ * main turns on TCP_NODELAY (-Dsun.net.httpserver.nodelay=true); when the service is created from
+ * another program, pass that flag to the JVM, or small responses wait about 40 ms for delayed ACKs.
+ */
+public class PlanningService implements AirplaneChangeListener {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_BODY_BYTES = 4 << 20;
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+    private static final int DEFAULT_MAX_STOPS = 2;
+    private static final int DEFAULT_NEAREST = 10;
+    // Range graphs hold every leg (up to size^2); above this many airports /stops uses the router instead
+    private static final int MAX_GRAPH_AIRPORTS = Integer.getInteger("service.rangeGraphMaxAirports", 2000);
+
+    private final AirportManager airportManager;
+    private final AirplaneManager airplaneManager;
+    private volatile Map<String, Airplane> airplanesByMakeModel; // Read-only copy, filled by start and replaced on every airplane change
+    private final Map<Double, RangeGraph> rangeGraphs = new ConcurrentHashMap<>(); // Airplane range -> legs, for /stops
+    private final Semaphore admitted; // Requests and batch items running or waiting (maxConcurrent + maxQueued)
+    private final int maxAdmitted;
+    private final Semaphore planners; // Plans running at the same time (maxConcurrent)
+    private final HttpServer server;
+    private final ExecutorService requestThreads = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("planning-service-", 0).factory());
+
+    // Counters for monitoring the service
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates the service; call start() to accept requests.
+     * @param airportManager: source of the airports
+     * @param airplaneManager: source of the airplanes
+     * @param address: where to listen (port 0 picks a free port, see getPort)
+     * @param maxConcurrent: plans that may run at the same time, usually the number of processors
+     * @param maxQueued: requests that may wait for a free slot before new ones get 429
+     */
+    public PlanningService(AirportManager airportManager, AirplaneManager airplaneManager, InetSocketAddress address,
+                           int maxConcurrent, int maxQueued) throws IOException {
+        if (airportManager == null || airplaneManager == null || address == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1 and maxQueued at least 0.");
+        }
+        this.airportManager = airportManager;
+        this.airplaneManager = airplaneManager;
+        this.maxAdmitted = maxConcurrent + maxQueued;
+        this.admitted = new Semaphore(maxAdmitted);
+        this.planners = new Semaphore(maxConcurrent);
+
+        this.server = HttpServer.create(address, maxConcurrent + maxQueued);
+        server.setExecutor(requestThreads);
+        server.createContext("/", exchange -> handle(exchange, this::route));
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Without TCP_NODELAY, small responses on kept-alive connections wait for delayed ACKs
+        // (about 40 ms each), which caps throughput far below what the planner can do.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("service.port", DEFAULT_PORT);
+        int maxConcurrent = Integer.getInteger("service.maxConcurrent", Runtime.getRuntime().availableProcessors());
+        int maxQueued = Integer.getInteger("service.maxQueued", 1024);
+
+        DataLoader loader = new DataLoader();
+        AirportManager airportManager = loader.getAirportManager().get();
+        AirplaneManager airplaneManager = loader.getAirplaneManager().get();
+        // Stop counts for the fleet, so infeasible plans and /stops are answered without a search;
+        // rebuilt in the background after edits (until then those requests use the router)
+        StopMatrix.Updater stopMatrices = StopMatrix.keepUpToDate(airportManager, airplaneManager);
+        PlanningService service = new PlanningService(airportManager, airplaneManager,
+                new InetSocketAddress(port), maxConcurrent, maxQueued);
+        // Edits to the CSV files made while the service runs are applied without a restart
+        DataFileWatcher watcher = new DataFileWatcher(airportManager, airplaneManager);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            watcher.close();
+            stopMatrices.close();
+            service.stop(1);
+        }));
+        service.start();
+        System.out.printf("Planning service listening on port %d (data loaded in %.0f ms)%n", service.getPort(), loader.getLoadMillis());
+    }
+
+    // Registers with the airplane manager (not in the constructor, so no change reaches a half-built service), then accepts requests
+    public void start() {
+        airplaneManager.addChangeListener(this);
+        airplaneChanged(null, null); // Fills the airplane copy and the range graphs
+        server.start();
+    }
+
+    // Stops accepting requests, waits up to delaySeconds for running ones, then shuts down
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        requestThreads.shutdown();
+        airplaneManager.removeChangeListener(this);
+        for (RangeGraph graph : rangeGraphs.values()) {
+            graph.detach(airportManager);
+        }
+        rangeGraphs.clear();
+    }
+
+    //Getter methods
+    public int getPort() { return server.getAddress().getPort(); }
+    public long getRequestCount() { return requests.sum(); }
+    public long getRejectedCount() { return rejected.sum(); }
+
+    // Rebuilds the read-only airplane copy. Runs on the thread that edited the airplanes.
+    @Override
+    public void airplaneChanged(Airplane before, Airplane after) {
+        Map<String, Airplane> copy = new LinkedHashMap<>(); // Keeps the list order for GET /airplanes
+        for (Airplane airplane : airplaneManager.getAirplanes()) {
+            copy.putIfAbsent(normalize(airplane.getMakeModel()), airplane);
+        }
+        airplanesByMakeModel = copy;
+        updateRangeGraphs(copy.values());
+    }
+
+    // Keeps one range graph per range of the fleet, so /stops needs no router search while the stop matrix is rebuilt
+    private void updateRangeGraphs(Collection<Airplane> airplanes) {
+        Set<Double> ranges = new HashSet<>();
+        if (airportManager.getSnapshot().size() <= MAX_GRAPH_AIRPORTS) {
+            for (Airplane airplane : airplanes) ranges.add(airplane.getMaxRange());
+        }
+        for (Iterator<Map.Entry<Double, RangeGraph>> it = rangeGraphs.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Double, RangeGraph> entry = it.next();
+            if (!ranges.contains(entry.getKey())) {
+                entry.getValue().detach(airportManager);
+                it.remove();
+            }
+        }
+        for (double range : ranges) {
+            rangeGraphs.computeIfAbsent(range, key -> RangeGraph.attach(airportManager, key));
+        }
+    }
+
+    // One endpoint: returns the status code and the response value to send as JSON
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static final class Response {
+        final int status;
+        final Object body;
+
+        Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    // Thrown by the endpoints to answer with an error status
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Admission control and error handling shared by every endpoint.
+    private void handle(HttpExchange exchange, Handler handler) {
+        try {
+            requests.increment();
+            if (!admitted.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, new Response(429, error("Too many requests, try again later.")));
+                return;
+            }
+            try {
+                Response response;
+                try {
+                    response = handler.handle(exchange);
+                } catch (HttpError e) {
+                    if (e.status == 429) { // A batch that did not fit
+                        rejected.increment();
+                        exchange.getResponseHeaders().set("Retry-After", "1");
+                    }
+                    response = new Response(e.status, error(e.getMessage()));
+                } catch (RuntimeException e) {
+                    System.out.println("Error handling " + exchange.getRequestURI() + ": " + e);
+                    response = new Response(500, error("Internal error: " + e.getMessage()));
+                }
+                send(exchange, response);
+            } finally {
+                admitted.release();
+            }
+        } catch (IOException e) {
+            // The client went away before the answer was sent; nothing left to do.
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath();
+        String method = exchange.getRequestMethod();
+        if (path.equals("/health")) {
+            requireMethod(method, "GET");
+            return health();
+        }
+        if (path.equals("/plan")) {
+            requireMethod(method, "GET");
+            return plan(queryParameters(exchange));
+        }
+        if (path.equals("/plan/batch")) {
+            requireMethod(method, "POST");
+            return planBatch(readBody(exchange));
+        }
+        if (path.equals("/reachable")) {
+            requireMethod(method, "GET");
+            return reachable(queryParameters(exchange));
+        }
+        if (path.equals("/stops")) {
+            requireMethod(method, "GET");
+            return stops(queryParameters(exchange));
+        }
+        if (path.equals("/nearest")) {
+            requireMethod(method, "GET");
+            return nearest(queryParameters(exchange));
+        }
+        if (path.equals("/airports")) {
+            requireMethod(method, "GET");
+            return findAirports(queryParameters(exchange));
+        }
+        if (path.startsWith("/airports/")) {
+            requireMethod(method, "GET");
+            return airport(decode(path.substring("/airports/".length())));
+        }
+        if (path.equals("/airplanes")) {
+            requireMethod(method, "GET");
+            List<Object> airplanes = new ArrayList<>();
+            for (Airplane airplane : airplanesByMakeModel.values()) {
+                airplanes.add(toJson(airplane));
+            }
+            return new Response(200, airplanes);
+        }
+        if (path.startsWith("/airplanes/")) {
+            requireMethod(method, "GET");
+            String makeModel = decode(path.substring("/airplanes/".length()));
+            Airplane airplane = airplanesByMakeModel.get(normalize(makeModel));
+            if (airplane == null) throw new HttpError(404, "Unknown airplane: " + makeModel);
+            return new Response(200, toJson(airplane));
+        }
+        throw new HttpError(404, "Unknown endpoint: " + path);
+    }
+
+    private Response health() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        AirportManager.Snapshot airports = airportManager.getSnapshot();
+        body.put("status", "ok");
+        body.put("airports", airports.size());
+        body.put("airportVersion", airports.getVersion());
+        body.put("airplanes", airplanesByMakeModel.size());
+        body.put("stopMatrix", airports.getTable().getStopMatrix() != null); // false while it is rebuilt after an edit
+        body.put("requests", requests.sum());
+        body.put("rejected", rejected.sum());
+        return new Response(200, body);
+    }
+
+    private Response plan(Map<String, String> parameters) {
+        String from = required(parameters, "from");
+        String to = required(parameters, "to");
+        String makeModel = required(parameters, "airplane");
+        FlightRouter.Objective objective = FlightRouter.Objective.MIN_DISTANCE;
+        if (parameters.containsKey("objective")) {
+            try {
+                objective = FlightRouter.Objective.valueOf(normalize(parameters.get("objective")));
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, "Unknown objective: " + parameters.get("objective"));
+            }
+        }
+
+        AirportManager.Snapshot airports = airportManager.getSnapshot();
+        Airport start = airports.searchAirport(from.trim());
+        if (start == null) throw new HttpError(404, "Unknown starting airport: " + from);
+        Airport destination = airports.searchAirport(to.trim());
+        if (destination == null) throw new HttpError(404, "Unknown destination airport: " + to);
+        Airplane airplane = airplanesByMakeModel.get(normalize(makeModel));
+        if (airplane == null) throw new HttpError(404, "Unknown airplane: " + makeModel);
+
+        Flight flight;
+        acquirePlanner();
+        try {
+            flight = FlightPlanning.planFlight(start, destination, airplane, airports.getSpatialIndex(), objective);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(422, e.getMessage()); // Valid request, but the destination cannot be reached
+        } finally {
+            planners.release();
+        }
+        return new Response(200, toJson(flight));
+    }
+
+    /*
+     * Plans every request of the body and answers with one result per request, in the same order.
+     * The body is either an array of {"from", "to", "airplane"} objects or {"requests": [...]}.
+     * Each plan runs on its own virtual thread and takes a planner slot like a single /plan does.
+     * Every item is admitted like a request of its own before any of them starts, so a batch cannot
+     * queue more work than maxQueued allows; if the items do not fit, the whole batch gets 429.
+     */
+    private Response planBatch(String body) {
+        Object parsed;
+        try {
+            parsed = Json.parse(body);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, e.getMessage());
+        }
+        if (parsed instanceof Map) parsed = ((Map<?, ?>) parsed).get("requests");
+        if (!(parsed instanceof List)) throw new HttpError(400, "Expected an array of requests.");
+        List<?> items = (List<?>) parsed;
+        int maxItems = Math.min(MAX_BATCH_SIZE, maxAdmitted - 1); // The batch request itself holds one slot
+        if (items.size() > maxItems) throw new HttpError(413, "At most " + maxItems + " requests per batch.");
+        List<BatchFlightPlanner.Request> batch = new ArrayList<>(items.size());
+        for (Object item : items) {
+            batch.add(toRequest(item));
+        }
+        if (!admitted.tryAcquire(batch.size())) {
+            throw new HttpError(429, "Too many requests, try again later.");
+        }
+
+        // The whole batch shares one airport snapshot and one airplane copy, like BatchFlightPlanner.
+        AirportManager.Snapshot airports = airportManager.getSnapshot();
+        Map<String, Airplane> airplanes = airplanesByMakeModel;
+        List<Future<BatchFlightPlanner.Result>> futures = new ArrayList<>(batch.size());
+        int submitted = 0;
+        try {
+            for (BatchFlightPlanner.Request request : batch) {
+                futures.add(requestThreads.submit(() -> {
+                    try {
+                        acquirePlanner();
+                        try {
+                            return BatchFlightPlanner.planOne(request, airports, airplanes);
+                        } finally {
+                            planners.release();
+                        }
+                    } finally {
+                        admitted.release(); // This item's admission slot
+                    }
+                }));
+                submitted++;
+            }
+        } finally {
+            admitted.release(batch.size() - submitted); // Items that never started (the service is stopping)
+        }
+
+        List<Object> results = new ArrayList<>(futures.size());
+        for (Future<BatchFlightPlanner.Result> future : futures) {
+            BatchFlightPlanner.Result result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpError(503, "Batch planning was interrupted.");
+            } catch (ExecutionException e) {
+                throw new HttpError(500, "Batch planning failed: " + e.getCause().getMessage());
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            if (result.isSuccess()) {
+                entry.put("flight", toJson(result.getFlight()));
+            } else {
+                entry.put("error", result.getError());
+            }
+            results.add(entry);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("results", results);
+        return new Response(200, response);
+    }
+
+    private Response reachable(Map<String, String> parameters) {
+        String from = required(parameters, "from");
+        String makeModel = required(parameters, "airplane");
+        int maxStops = DEFAULT_MAX_STOPS;
+        if (parameters.containsKey("maxStops")) {
+            try {
+                maxStops = Integer.parseInt(parameters.get("maxStops").trim());
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "Invalid maxStops: " + parameters.get("maxStops"));
+            }
+            if (maxStops < 0) throw new HttpError(400, "Invalid maxStops: " + parameters.get("maxStops"));
+        }
+
+        AirportManager.Snapshot airports = airportManager.getSnapshot();
+        Airport start = airports.searchAirport(from.trim());
+        if (start == null) throw new HttpError(404, "Unknown starting airport: " + from);
+        Airplane airplane = airplanesByMakeModel.get(normalize(makeModel));
+        if (airplane == null) throw new HttpError(404, "Unknown airplane: " + makeModel);
+
+        List<Reachability.Destination> destinations;
+        acquirePlanner();
+        try {
+            destinations = Reachability.findReachable(start, airplane, airports, maxStops);
+        } finally {
+            planners.release();
+        }
+        List<Object> reachable = new ArrayList<>(destinations.size());
+        for (Reachability.Destination destination : destinations) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("icao", destination.getAirport().getICAO());
+            entry.put("name", destination.getAirport().getAirportName());
+            entry.put("stops", destination.getStops());
+            entry.put("distance", destination.getDistance());
+            reachable.add(entry);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("from", start.getICAO());
+        response.put("maxStops", maxStops);
+        response.put("airports", reachable);
+        return new Response(200, response);
+    }
+
+    private Response stops(Map<String, String> parameters) {
+        String from = required(parameters, "from");
+        String to = required(parameters, "to");
+        String makeModel = required(parameters, "airplane");
+
+        AirportManager.Snapshot airports = airportManager.getSnapshot();
+        Airport start = airports.searchAirport(from.trim());
+        if (start == null) throw new HttpError(404, "Unknown starting airport: " + from);
+        Airport destination = airports.searchAirport(to.trim());
+        if (destination == null) throw new HttpError(404, "Unknown destination airport: " + to);
+        Airplane airplane = airplanesByMakeModel.get(normalize(makeModel));
+        if (airplane == null) throw new HttpError(404, "Unknown airplane: " + makeModel);
+
+        int stops;
+        acquirePlanner();
+        try {
+            stops = FlightPlanning.countStops(start, destination, airplane, airports.getSpatialIndex(),
+                    rangeGraphs.get(airplane.getMaxRange()));
+        } finally {
+            planners.release();
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("from", start.getICAO());
+        response.put("to", destination.getICAO());
+        response.put("reachable", stops >= 0);
+        response.put("stops", stops >= 0 ? stops : null);
+        return new Response(200, response);
+    }
+
+    private Response nearest(Map<String, String> parameters) {
+        double latitude = number(parameters, "lat");
+        double longitude = number(parameters, "lon");
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) { // Also rejects NaN
+            throw new HttpError(400, "Invalid coordinate: " + latitude + ", " + longitude);
+        }
+        int k = DEFAULT_NEAREST;
+        if (parameters.containsKey("k")) {
+            try {
+                k = Integer.parseInt(parameters.get("k").trim());
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "Invalid k: " + parameters.get("k"));
+            }
+            if (k < 1 || k > DEFAULT_SEARCH_LIMIT) throw new HttpError(400, "k must be from 1 to " + DEFAULT_SEARCH_LIMIT + ".");
+        }
+        AirportSpatialIndex airportIndex = airportManager.getSnapshot().getSpatialIndex();
+        int[] rows = new int[k];
+        double[] distances = new double[k];
+        int count;
+        if (parameters.containsKey("airplane")) {
+            Airplane airplane = airplanesByMakeModel.get(normalize(parameters.get("airplane")));
+            if (airplane == null) throw new HttpError(404, "Unknown airplane: " + parameters.get("airplane"));
+            count = airportIndex.findNearest(latitude, longitude, k, airplane.getFuelMask(), airplane.getMaxRange(), rows, distances);
+        } else {
+            count = airportIndex.findNearest(latitude, longitude, k, rows, distances);
+        }
+        List<Object> airports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> entry = toJson(airportIndex.getAirport(rows[i]));
+            entry.put("distance", distances[i]);
+            airports.add(entry);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("airports", airports);
+        return new Response(200, response);
+    }
+
+    private Response airport(String ICAO) {
+        Airport airport = airportManager.getSnapshot().searchAirport(ICAO.trim());
+        if (airport == null) throw new HttpError(404, "Unknown airport: " + ICAO);
+        return new Response(200, toJson(airport));
+    }
+
+    private Response findAirports(Map<String, String> parameters) {
+        String query = required(parameters, "q");
+        AirportTextIndex.Field field;
+        try {
+            field = AirportTextIndex.Field.valueOf(normalize(parameters.getOrDefault("field", "NAME")));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Unknown field: " + parameters.get("field") + " (use ICAO, NAME or CITY)");
+        }
+        int limit = DEFAULT_SEARCH_LIMIT;
+        if (parameters.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(parameters.get("limit").trim());
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "Invalid limit: " + parameters.get("limit"));
+            }
+            if (limit < 1) throw new HttpError(400, "limit must be at least 1.");
+        }
+
+        List<Airport> matches = airportManager.findAirports(field, query);
+        List<Object> airports = new ArrayList<>();
+        for (Airport airport : matches) {
+            if (airports.size() >= limit) break;
+            airports.add(toJson(airport));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", matches.size());
+        response.put("airports", airports);
+        return new Response(200, response);
+    }
+
+    // Waits for a free planner slot; the virtual thread parks without holding an OS thread
+    private void acquirePlanner() {
+        try {
+            planners.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpError(503, "Service is shutting down.");
+        }
+    }
+
+    private static BatchFlightPlanner.Request toRequest(Object item) {
+        if (!(item instanceof Map)) return null; // planOne reports it as a missing request
+        Map<?, ?> fields = (Map<?, ?>) item;
+        return new BatchFlightPlanner.Request(text(fields.get("from")), text(fields.get("to")), text(fields.get("airplane")));
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Map<String, Object> toJson(Flight flight) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("from", flight.getStartingAirport());
+        json.put("to", flight.getDestinationAirport());
+        json.put("distance", flight.getDistance());
+        json.put("estimatedTime", flight.getEstimatedTime());
+        json.put("fuelNeeded", flight.getFuelNeeded());
+        json.put("heading", flight.getHeading());
+        json.put("destinationCOM", flight.getDestinationCOM());
+        json.put("refuelStops", flight.getRefuelStops());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Airport airport) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("icao", airport.getICAO());
+        json.put("name", airport.getAirportName());
+        json.put("latitude", airport.getLatitude());
+        json.put("longitude", airport.getLongitude());
+        json.put("frequency", airport.getRadioFrequencies());
+        json.put("regionState", airport.getRegionState());
+        json.put("regionAbbr", airport.getRegionAbbr());
+        json.put("city", airport.getCity());
+        json.put("fuelTypes", airport.getFuelTypes());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Airplane airplane) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("makeModel", airplane.getMakeModel());
+        json.put("planeType", airplane.getPlaneType());
+        json.put("fuelType", airplane.getFuelType());
+        json.put("fuelBurnRate", airplane.getFuelBurnRate());
+        json.put("fuelCapacity", airplane.getFuelCapacity());
+        json.put("airspeed", airplane.getAirspeed());
+        json.put("maxRange", airplane.getMaxRange());
+        return json;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] bytes = Json.write(response.body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) throw new HttpError(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes.");
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int equals = pair.indexOf('=');
+            String key = decode(equals < 0 ? pair : pair.substring(0, equals));
+            parameters.put(key, equals < 0 ? "" : decode(pair.substring(equals + 1)));
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) throw new HttpError(400, "Missing parameter: " + name);
+        return value;
+    }
+
+    private static double number(Map<String, String> parameters, String name) {
+        String value = required(parameters, name);
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) throw new HttpError(405, "Use " + expected + " for this endpoint.");
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Invalid URL encoding: " + value);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+}
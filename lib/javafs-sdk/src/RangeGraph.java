@@ -0,0 +1,329 @@
+package src;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Graph of the legs one airplane range can fly (every pair of airports no more than maxRange apart),
+ * kept up to date from AirportManager's change events instead of being rebuilt.
+ *
+ * Airports are bucketed in a grid over their unit vectors whose cells are one range (as a chord) wide,
+ * so every airport within range of a point lies in the 27 cells around it. An edit therefore only
+ * touches the airports near the changed one:
+ *   add:    the new airport is linked to the airports within range of it;
+ *   remove: its legs are unlinked from its neighbours;
+ *   modify: same coordinates just swap the airport object; a move unlinks around the old position
+ *           and links around the new one.
+ * Each costs O(k) in the number of airports nearby, not the O(N^2) of a full rebuild.
+ *
+ * Legs use FlightPlanning's distance, so they are exactly the legs FlightRouter considers.
+ * FlightPlanning.countStops uses an attached graph when no stop matrix answers (PlanningService keeps
+ * one per airplane range for /stops while the matrix is rebuilt after an edit).
+ * Queries share a read lock and change events, which arrive on the writer's thread, take the write
+ * lock; it is not a monitor, so waiting virtual threads do not pin their carrier.
+ */
+public final class RangeGraph implements AirportChangeListener {
+    private static final int EARTH_RADIUS_MILES = 3959; // Same radius used by FlightPlanning
+    private static final double CHORD_SLACK = 1e-9;     // Keeps borderline airports in the candidate set
+    private static final double MIN_CELL = 1e-4;        // About 0.4 miles; keeps tiny ranges from making huge keys
+
+    public static final int UNKNOWN = -2; // countStops: an airport is not in the graph
+
+    private final double maxRange;
+    private final double cellSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Airport, Integer> nodes = new IdentityHashMap<>();
+    private final Map<Long, Bucket> cells = new HashMap<>();
+
+    // Per node (index = node id); freed ids are reused
+    private final List<Airport> airports = new ArrayList<>();
+    private final List<Legs> legs = new ArrayList<>();
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private long legCount;
+
+    /**
+     * Creates an empty graph; add airports with airportChanged(null, airport) or use attach().
+     * @param maxRange: the longest leg in miles (Airplane.getMaxRange())
+     */
+    public RangeGraph(double maxRange) {
+        if (!(maxRange >= 0)) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        this.maxRange = maxRange;
+        double angle = Math.min(Math.PI, maxRange / EARTH_RADIUS_MILES);
+        this.cellSize = Math.max(MIN_CELL, 2 * Math.sin(angle / 2) + CHORD_SLACK);
+    }
+
+    /**
+     * Builds the graph for the current airports of a manager and keeps it up to date from then on.
+     * Call detach when it is no longer needed.
+     */
+    public static RangeGraph attach(AirportManager airportManager, double maxRange) {
+        RangeGraph graph = new RangeGraph(maxRange);
+        graph.lock.writeLock().lock(); // Events that arrive while building wait for the build
+        try {
+            AirportManager.Snapshot snapshot = airportManager.addChangeListener(graph);
+            for (Airport airport : snapshot.getAirports()) {
+                graph.link(airport);
+            }
+        } finally {
+            graph.lock.writeLock().unlock();
+        }
+        return graph;
+    }
+
+    // Stops listening to the manager
+    public void detach(AirportManager airportManager) {
+        airportManager.removeChangeListener(this);
+    }
+
+    //Getter methods
+    public double getMaxRange() { return maxRange; }
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLegCount() {
+        lock.readLock().lock();
+        try {
+            return legCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns true if the airport is part of the graph
+    public boolean contains(Airport airport) {
+        lock.readLock().lock();
+        try {
+            return nodes.containsKey(airport);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The airports one leg away from an airport (no particular order).
+     * @return the neighbours, or an empty list if the airport is not in the graph
+     */
+    public List<Airport> getNeighbors(Airport airport) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodes.get(airport);
+            if (node == null) return List.of();
+            Legs own = legs.get(node);
+            List<Airport> result = new ArrayList<>(own.size);
+            for (int i = 0; i < own.size; i++) {
+                result.add(airports.get(own.targets[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fewest refuel stops from one airport to another on the current graph (0 = nonstop), like
+     * FlightRouter with Objective.MIN_STOPS: every stop in between must sell a fuel in fuelMask.
+     * The airports must be the objects of the graph (a replaced airport is not in it anymore).
+     * @return the stop count, -1 if no chain of legs reaches the destination, or UNKNOWN if an airport is not in the graph
+     */
+    public int countStops(Airport start, Airport destination, int fuelMask) {
+        lock.readLock().lock();
+        try {
+            return search(start, destination, fuelMask);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Breadth-first search for countStops (hold the read lock)
+    private int search(Airport start, Airport destination, int fuelMask) {
+        Integer from = nodes.get(start);
+        Integer to = nodes.get(destination);
+        if (from == null || to == null) return UNKNOWN;
+        if (from.equals(to)) return 0;
+        int[] level = new int[airports.size()];
+        Arrays.fill(level, -1);
+        level[from] = 0;
+        int[] queue = new int[airports.size()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            int node = queue[head++];
+            Legs own = legs.get(node);
+            for (int i = 0; i < own.size; i++) {
+                int next = own.targets[i];
+                if (level[next] >= 0) continue;
+                level[next] = level[node] + 1;
+                if (next == to) return level[next] - 1;
+                if (FuelTypes.compatible(fuelMask, airports.get(next).getFuelMask())) queue[tail++] = next;
+            }
+        }
+        return -1;
+    }
+
+    // Applies one airport change; see the class comment
+    @Override
+    public void airportChanged(Airport before, Airport after) {
+        lock.writeLock().lock();
+        try {
+            apply(before, after);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Airport before, Airport after) {
+        if (before != null && after != null && nodes.containsKey(before)
+                && before.getLatitude() == after.getLatitude() && before.getLongitude() == after.getLongitude()) {
+            int node = nodes.remove(before); // Same position, same legs
+            nodes.put(after, node);
+            airports.set(node, after);
+            return;
+        }
+        if (before != null) unlink(before);
+        if (after != null) link(after);
+    }
+
+    // Adds an airport and its legs to every airport within range
+    private void link(Airport airport) {
+        if (nodes.containsKey(airport)) return;
+        int node;
+        if (freeIds.isEmpty()) {
+            node = airports.size();
+            airports.add(airport);
+            legs.add(new Legs());
+        } else {
+            node = freeIds.pop();
+            airports.set(node, airport);
+        }
+        nodes.put(airport, node);
+
+        double[] point = unitVector(airport);
+        int cx = cell(point[0]);
+        int cy = cell(point[1]);
+        int cz = cell(point[2]);
+        Legs own = legs.get(node);
+        for (int x = cx - 1; x <= cx + 1; x++) {
+            for (int y = cy - 1; y <= cy + 1; y++) {
+                for (int z = cz - 1; z <= cz + 1; z++) {
+                    Bucket bucket = cells.get(key(x, y, z));
+                    if (bucket == null) continue;
+                    for (int i = 0; i < bucket.size; i++) {
+                        int other = bucket.nodes[i];
+                        if (FlightPlanning.calculateHaversineDistance(airport, airports.get(other)) > maxRange) continue;
+                        Legs theirs = legs.get(other);
+                        int ownSize = own.size;
+                        own.add(other, theirs.size);
+                        theirs.add(node, ownSize);
+                        legCount++;
+                    }
+                }
+            }
+        }
+        cells.computeIfAbsent(key(cx, cy, cz), ignored -> new Bucket()).add(node);
+    }
+
+    // Removes an airport and all of its legs
+    private void unlink(Airport airport) {
+        Integer node = nodes.remove(airport);
+        if (node == null) return;
+        Legs own = legs.get(node);
+        for (int i = 0; i < own.size; i++) {
+            removeLeg(own.targets[i], own.reverse[i]);
+        }
+        legCount -= own.size;
+        own.clear();
+
+        double[] point = unitVector(airport);
+        long key = key(cell(point[0]), cell(point[1]), cell(point[2]));
+        Bucket bucket = cells.get(key);
+        bucket.remove(node);
+        if (bucket.size == 0) cells.remove(key);
+        airports.set(node, null);
+        freeIds.push(node);
+    }
+
+    // Removes the leg at a position of a node's list by moving its last leg into the gap
+    private void removeLeg(int node, int position) {
+        Legs list = legs.get(node);
+        int last = --list.size;
+        if (position == last) return;
+        int moved = list.targets[last];
+        int movedReverse = list.reverse[last];
+        list.targets[position] = moved;
+        list.reverse[position] = movedReverse;
+        legs.get(moved).reverse[movedReverse] = position; // The other end now points at the new position
+    }
+
+    private static double[] unitVector(Airport airport) {
+        double lat = Math.toRadians(airport.getLatitude());
+        double lon = Math.toRadians(airport.getLongitude());
+        return new double[] {Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor((coordinate + 1) / cellSize);
+    }
+
+    // Packs three cell coordinates into one key (at most 2 / MIN_CELL + 2 cells per axis)
+    private static long key(int x, int y, int z) {
+        return ((long) (x + 1) << 42) | ((long) (y + 1) << 21) | (z + 1);
+    }
+
+    // Legs of one node: target node ids, in no particular order. reverse[i] is the position of the
+    // same leg in the target's list, so removing an airport costs O(1) per leg.
+    private static final class Legs {
+        private int[] targets = new int[4];
+        private int[] reverse = new int[4];
+        private int size;
+
+        void add(int target, int reversePosition) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                reverse = Arrays.copyOf(reverse, size * 2);
+            }
+            targets[size] = target;
+            reverse[size] = reversePosition;
+            size++;
+        }
+
+        void clear() {
+            targets = new int[4];
+            reverse = new int[4];
+            size = 0;
+        }
+    }
+
+    // Node ids of one grid cell
+    private static final class Bucket {
+        private int[] nodes = new int[4];
+        private int size;
+
+        void add(int node) {
+            if (size == nodes.length) nodes = Arrays.copyOf(nodes, size * 2);
+            nodes[size++] = node;
+        }
+
+        void remove(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    nodes[i] = nodes[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package src;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Answers "which airports can this airplane reach from here with at most N refuel stops?".
+ * The search runs level by level like a breadth-first search: level k holds the airports first
+ * reached with k legs, and the ones among them that sell the airplane's fuel are the frontier the
+ * next level flies from. For every airport not reached yet, a level looks for the frontier airport
+ * in range that gives the shortest total route. The frontier is kept in a k-d tree in which every
+ * subtree also knows its bounding box, so subtrees that are out of range, or cannot beat the best
+ * route found so far, are skipped (branch and bound). The airports of one level are evaluated in
+ * parallel, in chunks of neighbouring airports: each search starts from the frontier airport that
+ * gave the previous airport its route, which is usually close to the best one and lets the bound
+ * prune from the start.
+ *
+ * Every reachable airport is reported with its minimum number of stops, and with the shortest
+ * distance among the routes that have that number of stops (the FlightRouter.Objective.MIN_STOPS order).
+ */
+public class Reachability {
+    private static final double EARTH_RADIUS_MILES = 3959; // Same radius used by FlightPlanning
+    private static final double CHORD_SLACK = 1e-9;       // Keeps borderline airports in range, the real distance decides
+    private static final double BOUND_SLACK_MILES = 1e-9; // Keeps rounding in the bounds from pruning the best route
+    private static final int PARALLEL_THRESHOLD = 4096;   // Smaller levels are not worth splitting across threads
+    private static final int CHUNK_SIZE = 256;            // Neighbouring airports searched one after another
+
+    /**
+     * One reachable airport.
+     */
+    public static final class Destination {
+        private final Airport airport;
+        private final int stops;
+        private final double distance;
+
+        Destination(Airport airport, int stops, double distance) {
+            this.airport = airport;
+            this.stops = stops;
+            this.distance = distance;
+        }
+
+        //Getter methods
+        public Airport getAirport() { return airport; }
+        public int getStops() { return stops; }       // Minimum number of refuel stops
+        public double getDistance() { return distance; } // Miles flown on the shortest route with that many stops
+    }
+
+    // Same as findReachable below, on one pinned AirportManager snapshot
+    public static List<Destination> findReachable(Airport start, Airplane airplane, AirportManager.Snapshot airports, int maxStops) {
+        if (airports == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        return findReachable(start, airplane, airports.getSpatialIndex(), maxStops);
+    }
+
+    /**
+     * Finds every airport the airplane can reach from the start with at most maxStops refuel stops.
+     * Refuel stops must sell the airplane's fuel; the reached airports themselves do not have to.
+     * @param start: the departure airport (does not have to be part of the index)
+     * @param airplane: the airplane (range and fuel type)
+     * @param airportIndex: the airports that can be reached or used as stops
+     * @param maxStops: the maximum number of refuel stops (0 = nonstop only)
+     * @return the reachable airports ordered by stops, then distance (the start itself is not included)
+     */
+    public static List<Destination> findReachable(Airport start, Airplane airplane, AirportSpatialIndex airportIndex, int maxStops) {
+        if (start == null || airplane == null || airportIndex == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        if (maxStops < 0) {
+            throw new IllegalArgumentException("Max stops cannot be negative.");
+        }
+        AirportTable table = airportIndex.getTable();
+        double maxRange = airplane.getMaxRange();
+        int fuelMask = airplane.getFuelMask();
+        double angle = Math.min(Math.PI, Math.max(0, maxRange) / EARTH_RADIUS_MILES);
+        double chord = 2 * Math.sin(angle / 2) + CHORD_SLACK;
+
+        // Airports not reached yet, in k-d order so neighbours follow each other (the start is never a result)
+        int[] pending = IntStream.range(0, table.size()).map(airportIndex::getRowInTreeOrder)
+                .filter(row -> table.getAirport(row) != start).toArray();
+
+        // Level 0: the start itself
+        double startLat = Math.toRadians(start.getLatitude());
+        double startLon = Math.toRadians(start.getLongitude());
+        double startCos = Math.cos(startLat);
+        Origin origin = new Origin(startCos * Math.cos(startLon), startCos * Math.sin(startLon), Math.sin(startLat),
+                startLat, startLon, startCos);
+        Frontier frontier = new Frontier(origin, 1);
+        frontier.add(origin.x, origin.y, origin.z, startLat, startLon, startCos, 0);
+
+        List<Destination> reachable = new ArrayList<>();
+        for (int legs = 1; legs <= maxStops + 1 && frontier.size > 0 && pending.length > 0; legs++) {
+            frontier.build(maxRange, chord * chord);
+            Frontier from = frontier;
+            int[] rows = pending;
+            double[] miles = new double[rows.length];
+            IntStream chunks = IntStream.range(0, (rows.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            if (rows.length >= PARALLEL_THRESHOLD) chunks = chunks.parallel();
+            chunks.forEach(chunk -> {
+                int[] hint = {-1};
+                for (int i = chunk * CHUNK_SIZE; i < Math.min(rows.length, (chunk + 1) * CHUNK_SIZE); i++) {
+                    int row = rows[i];
+                    miles[i] = from.shortestRoute(airportIndex.getX(row), airportIndex.getY(row), airportIndex.getZ(row),
+                            table.getLatitudeRadians(row), table.getLongitudeRadians(row), table.getCosLatitude(row), hint);
+                }
+            });
+
+            // Airports reached on this level are done; the ones that can refuel the airplane are the next frontier.
+            frontier = new Frontier(origin, Math.max(1, rows.length / 4));
+            int stillPending = 0;
+            for (int i = 0; i < rows.length; i++) {
+                int row = rows[i];
+                if (miles[i] == Double.POSITIVE_INFINITY) {
+                    rows[stillPending++] = row;
+                    continue;
+                }
+                reachable.add(new Destination(table.getAirport(row), legs - 1, miles[i]));
+                if ((table.getFuelMask(row) & fuelMask) != 0) {
+                    frontier.add(airportIndex.getX(row), airportIndex.getY(row), airportIndex.getZ(row),
+                            table.getLatitudeRadians(row), table.getLongitudeRadians(row), table.getCosLatitude(row), miles[i]);
+                }
+            }
+            pending = Arrays.copyOf(rows, stillPending);
+        }
+
+        reachable.sort(Comparator.comparingInt(Destination::getStops).thenComparingDouble(Destination::getDistance));
+        return reachable;
+    }
+
+    // The start airport as a unit vector plus its radians, shared by every level
+    private static final class Origin {
+        final double x, y, z, lat, lon, cos;
+
+        Origin(double x, double y, double z, double lat, double lon, double cos) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.lat = lat;
+            this.lon = lon;
+            this.cos = cos;
+        }
+
+        // Great-circle miles from the start
+        double distanceTo(double lat, double lon, double cos) {
+            return AirportTable.haversine(this.lat, this.lon, this.cos, lat, lon, cos);
+        }
+    }
+
+    /*
+     * The airports of one level that the next level can fly from, in a k-d tree on their unit vectors.
+     *
+     * The route to an airport v through frontier airport u is start->u (its route miles) plus the leg
+     * u->v. Written as d(start,u) + d(u,v) + slack(u), where slack is how much longer u's route is than
+     * the straight line, the first two terms can be bounded for a whole subtree from its bounding
+     * box (and are never below d(start,v)), and the slack by the subtree's smallest slack. Only the
+     * few subtrees near the straight line from the start to v survive that bound.
+     */
+    private static final class Frontier {
+        private final Origin origin;
+        private int size;
+        private double[] xs, ys, zs;              // Unit vectors
+        private double[] lats, lons, coss;        // Radians and cos(latitude) for the exact Haversine leg
+        private double[] miles;                   // Route miles from the start to this airport
+        private double[] slacks;                  // Route miles minus the great-circle miles from the start
+        private int[] tree;                       // Point numbers in k-d order
+        private double[] minX, minY, minZ, maxX, maxY, maxZ, minSlack; // Per tree position, over its subtree
+        private double maxRange;
+        private double chordSquared;
+
+        Frontier(Origin origin, int capacity) {
+            this.origin = origin;
+            xs = new double[capacity];
+            ys = new double[capacity];
+            zs = new double[capacity];
+            lats = new double[capacity];
+            lons = new double[capacity];
+            coss = new double[capacity];
+            miles = new double[capacity];
+            slacks = new double[capacity];
+        }
+
+        void add(double x, double y, double z, double lat, double lon, double cos, double routeMiles) {
+            if (size == xs.length) {
+                int capacity = size * 2;
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                zs = Arrays.copyOf(zs, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+                coss = Arrays.copyOf(coss, capacity);
+                miles = Arrays.copyOf(miles, capacity);
+                slacks = Arrays.copyOf(slacks, capacity);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            lats[size] = lat;
+            lons[size] = lon;
+            coss[size] = cos;
+            miles[size] = routeMiles;
+            slacks[size] = Math.max(0, routeMiles - origin.distanceTo(lat, lon, cos));
+            size++;
+        }
+
+        // Builds the tree and the subtree bounds; call after the last add.
+        void build(double maxRange, double chordSquared) {
+            this.maxRange = maxRange;
+            this.chordSquared = chordSquared;
+            tree = new int[size];
+            for (int i = 0; i < size; i++) tree[i] = i;
+            minX = new double[size];
+            minY = new double[size];
+            minZ = new double[size];
+            maxX = new double[size];
+            maxY = new double[size];
+            maxZ = new double[size];
+            minSlack = new double[size];
+            build(0, size, 0);
+        }
+
+        private void build(int lo, int hi, int depth) {
+            if (lo >= hi) return;
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, depth % 3);
+            build(lo, mid, depth + 1);
+            build(mid + 1, hi, depth + 1);
+
+            // Bounds of this subtree: the node itself plus both children
+            int point = tree[mid];
+            minX[mid] = maxX[mid] = xs[point];
+            minY[mid] = maxY[mid] = ys[point];
+            minZ[mid] = maxZ[mid] = zs[point];
+            minSlack[mid] = slacks[point];
+            if (lo < mid) include(mid, (lo + mid) >>> 1);
+            if (mid + 1 < hi) include(mid, (mid + 1 + hi) >>> 1);
+        }
+
+        private void include(int node, int child) {
+            minX[node] = Math.min(minX[node], minX[child]);
+            minY[node] = Math.min(minY[node], minY[child]);
+            minZ[node] = Math.min(minZ[node], minZ[child]);
+            maxX[node] = Math.max(maxX[node], maxX[child]);
+            maxY[node] = Math.max(maxY[node], maxY[child]);
+            maxZ[node] = Math.max(maxZ[node], maxZ[child]);
+            minSlack[node] = Math.min(minSlack[node], minSlack[child]);
+        }
+
+        // Quickselect: places the k-th smallest point (by axis) at position k.
+        private void select(int lo, int hi, int k, int axis) {
+            while (hi > lo) {
+                double pivot = coordinate(tree[(lo + hi) >>> 1], axis);
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (coordinate(tree[i], axis) < pivot) i++;
+                    while (coordinate(tree[j], axis) > pivot) j--;
+                    if (i <= j) {
+                        int swap = tree[i];
+                        tree[i] = tree[j];
+                        tree[j] = swap;
+                        i++;
+                        j--;
+                    }
+                }
+                if (k <= j) {
+                    hi = j;
+                } else if (k >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private double coordinate(int point, int axis) {
+            return axis == 0 ? xs[point] : axis == 1 ? ys[point] : zs[point];
+        }
+
+        /**
+         * Returns the shortest route (in miles) to the given airport through one more leg from a
+         * frontier airport, or infinity if no frontier airport is within range.
+         * @param hint: hint[0] is the frontier point to try first (-1 for none); set to the point of the returned route
+         */
+        double shortestRoute(double x, double y, double z, double lat, double lon, double cos, int[] hint) {
+            if (size == 0) return Double.POSITIVE_INFINITY;
+            double direct = origin.distanceTo(lat, lon, cos);
+            int root = size >>> 1; // Same middle the tree was built around
+            double best = Double.POSITIVE_INFINITY;
+            if (bound(root, x, y, z, direct, best) == best) return best;
+            int first = hint[0];
+            if (first >= 0) {
+                double leg = AirportTable.haversine(lats[first], lons[first], coss[first], lat, lon, cos);
+                if (leg <= maxRange) best = miles[first] + leg;
+            }
+            return search(0, size, x, y, z, lat, lon, cos, direct, best, hint);
+        }
+
+        private double search(int lo, int hi, double x, double y, double z, double lat, double lon, double cos,
+                              double direct, double best, int[] hint) {
+            int mid = (lo + hi) >>> 1;
+            int point = tree[mid];
+
+            // The chord is never longer than the great-circle leg, so most airports are ruled out before the Haversine.
+            double dx = xs[point] - x;
+            double dy = ys[point] - y;
+            double dz = zs[point] - z;
+            double chordSquared = dx * dx + dy * dy + dz * dz;
+            if (chordSquared <= this.chordSquared
+                    && miles[point] + EARTH_RADIUS_MILES * Math.sqrt(chordSquared) - BOUND_SLACK_MILES < best) {
+                double leg = AirportTable.haversine(lats[point], lons[point], coss[point], lat, lon, cos);
+                if (leg <= maxRange && miles[point] + leg < best) {
+                    best = miles[point] + leg;
+                    hint[0] = point;
+                }
+            }
+
+            // Visit the child with the lower bound first; the other one only if it can still beat the best route.
+            double leftBound = lo < mid ? bound((lo + mid) >>> 1, x, y, z, direct, best) : Double.POSITIVE_INFINITY;
+            double rightBound = mid + 1 < hi ? bound((mid + 1 + hi) >>> 1, x, y, z, direct, best) : Double.POSITIVE_INFINITY;
+            if (leftBound <= rightBound) {
+                if (leftBound < best) best = search(lo, mid, x, y, z, lat, lon, cos, direct, best, hint);
+                if (rightBound < best) best = search(mid + 1, hi, x, y, z, lat, lon, cos, direct, best, hint);
+            } else {
+                if (rightBound < best) best = search(mid + 1, hi, x, y, z, lat, lon, cos, direct, best, hint);
+                if (leftBound < best) best = search(lo, mid, x, y, z, lat, lon, cos, direct, best, hint);
+            }
+            return best;
+        }
+
+        /*
+         * Lower bound of the route through any airport of the subtree at this tree position, or
+         * infinity if the whole subtree is out of range. A great-circle distance is never shorter
+         * than the arc over the chord to the nearest point of the box, and that arc is never shorter
+         * than the chord itself; the exact arcs are only worked out when the chords cannot prune.
+         */
+        private double bound(int node, double x, double y, double z, double direct, double best) {
+            double toAirport = boxChordSquared(node, x, y, z);
+            if (toAirport > chordSquared) return Double.POSITIVE_INFINITY;
+            double toStart = boxChordSquared(node, origin.x, origin.y, origin.z);
+            double chords = EARTH_RADIUS_MILES * (Math.sqrt(toStart) + Math.sqrt(toAirport));
+            double bound = minSlack[node] + Math.max(direct, chords) - BOUND_SLACK_MILES;
+            if (bound >= best) return bound;
+            double arcs = arcMiles(toStart) + arcMiles(toAirport);
+            return minSlack[node] + Math.max(direct, arcs) - BOUND_SLACK_MILES;
+        }
+
+        private double boxChordSquared(int node, double x, double y, double z) {
+            double dx = x < minX[node] ? minX[node] - x : x > maxX[node] ? x - maxX[node] : 0;
+            double dy = y < minY[node] ? minY[node] - y : y > maxY[node] ? y - maxY[node] : 0;
+            double dz = z < minZ[node] ? minZ[node] - z : z > maxZ[node] ? z - maxZ[node] : 0;
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        // Great-circle miles for a squared chord length between unit vectors
+        private static double arcMiles(double chordSquared) {
+            return 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1, Math.sqrt(chordSquared) / 2));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package src;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded LRU cache of planned flights keyed by (start ICAO, destination ICAO, airplane make/model).
+ * The cache listens to both managers and only drops the entries whose result could change:
+ * - when an airport on the route (start, refuel stops or destination) is modified or removed,
+ * - when an airport is added, or moved, to a spot where a detour through it is no longer than
+ *   the cached route (any other airport cannot give a shorter route),
+ * - when the airplane of the entry is modified or removed.
+ * Flights that could not be planned are not cached.
+ */
+public class RouteCache implements AirportChangeListener, AirplaneChangeListener {
+    private static final double DETOUR_SLACK_MILES = 1e-6; // Treats ties as "could change"
+
+    private final AirportManager airportManager;
+    private final AirplaneManager airplaneManager;
+    private final Map<Key, Entry> entries;
+
+    // Counters for monitoring the cache
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long changeCount; // Bumped on every change so results planned during a change are not stored
+
+    /**
+     * Creates the cache and registers it with both managers.
+     * @param airportManager: source of the airports (and of airport changes)
+     * @param airplaneManager: source of the airplanes (and of airplane changes)
+     * @param maxEntries: maximum number of flights kept; the least recently used one is evicted first
+     */
+    public static RouteCache create(AirportManager airportManager, AirplaneManager airplaneManager, int maxEntries) {
+        RouteCache cache = new RouteCache(airportManager, airplaneManager, maxEntries);
+        // Registered once the cache is fully built: a change can reach it from another thread right away
+        airportManager.addChangeListener(cache);
+        airplaneManager.addChangeListener(cache);
+        return cache;
+    }
+
+    private RouteCache(AirportManager airportManager, AirplaneManager airplaneManager, int maxEntries) {
+        if (airportManager == null || airplaneManager == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1.");
+        }
+        this.airportManager = airportManager;
+        this.airplaneManager = airplaneManager;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) { // Access order = LRU order
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the planned flight for the given codes, planning it only on a cache miss.
+     * The returned Flight is shared with later callers and should not be modified.
+     * @throws IllegalArgumentException if a code is unknown or the destination cannot be reached
+     */
+    public Flight planFlight(String startICAO, String destinationICAO, String airplaneMakeModel) {
+        Key key = new Key(startICAO, destinationICAO, airplaneMakeModel);
+        long changesBefore;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached.flight;
+            }
+            misses++;
+            changesBefore = changeCount;
+        }
+
+        // Plan outside the lock so a slow plan does not block other lookups.
+        // The whole plan uses one airport snapshot, so concurrent edits cannot mix versions.
+        AirportManager.Snapshot airports = airportManager.getSnapshot();
+        Airport start = airports.searchAirport(startICAO);
+        Airport destination = airports.searchAirport(destinationICAO);
+        Airplane airplane = airplaneManager.searchAirplane(airplaneMakeModel);
+        if (start == null || destination == null || airplane == null) {
+            throw new IllegalArgumentException("Unknown airport or airplane: " + startICAO + ", " + destinationICAO + ", " + airplaneMakeModel);
+        }
+        // Planned like FlightPlanning.planFlight (so misses show up in PlanningMetrics); the route is kept to know what the entry depends on
+        FlightRouter.Route[] route = new FlightRouter.Route[1];
+        Flight flight = FlightPlanning.planFlight(start, destination, airplane, airports.getSpatialIndex(), FlightRouter.Objective.MIN_DISTANCE, route);
+
+        synchronized (this) {
+            // Only store the result if nothing changed while it was being planned.
+            if (changeCount == changesBefore) {
+                entries.put(key, new Entry(flight, start, destination, route[0]));
+            }
+        }
+        return flight;
+    }
+
+    @Override
+    public synchronized void airportChanged(Airport before, Airport after) {
+        changeCount++;
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> mapEntry = iterator.next();
+            if (mapEntry.getValue().dependsOn(mapEntry.getKey(), before, after)) {
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void airplaneChanged(Airplane before, Airplane after) {
+        changeCount++;
+        String beforeKey = before == null ? null : normalize(before.getMakeModel());
+        String afterKey = after == null ? null : normalize(after.getMakeModel());
+        Iterator<Key> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            String makeModel = iterator.next().airplaneMakeModel;
+            if (makeModel.equals(beforeKey) || makeModel.equals(afterKey)) {
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    //Getter methods for the counters
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getInvalidations() { return invalidations; }
+    public synchronized int size() { return entries.size(); }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // Cache key with case-insensitive codes, matching how the managers search.
+    private static final class Key {
+        final String startICAO;
+        final String destinationICAO;
+        final String airplaneMakeModel;
+
+        Key(String startICAO, String destinationICAO, String airplaneMakeModel) {
+            this.startICAO = normalize(startICAO);
+            this.destinationICAO = normalize(destinationICAO);
+            this.airplaneMakeModel = normalize(airplaneMakeModel);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return startICAO.equals(key.startICAO) && destinationICAO.equals(key.destinationICAO)
+                    && airplaneMakeModel.equals(key.airplaneMakeModel);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(startICAO, destinationICAO, airplaneMakeModel);
+        }
+    }
+
+    // A cached flight plus the airports and distance it was planned with.
+    private static final class Entry {
+        final Flight flight;
+        final Airport start;
+        final Airport destination;
+        final List<Airport> routeAirports;
+        final double routeMiles;
+        final boolean nonstop;
+
+        Entry(Flight flight, Airport start, Airport destination, FlightRouter.Route route) {
+            this.flight = flight;
+            this.start = start;
+            this.destination = destination;
+            this.routeAirports = new ArrayList<>(route.getStops());
+            routeAirports.add(start);
+            routeAirports.add(destination);
+            this.routeMiles = route.getDistance();
+            this.nonstop = route.getStopCount() == 0;
+        }
+
+        // Decides whether a change to one airport could change this entry's result.
+        boolean dependsOn(Key key, Airport before, Airport after) {
+            if (before != null) {
+                for (Airport airport : routeAirports) {
+                    if (airport == before) return true; // An airport on the route changed or disappeared
+                }
+            }
+            if (after != null) {
+                String icao = normalize(after.getICAO());
+                if (icao.equals(key.startICAO) || icao.equals(key.destinationICAO)) return true;
+
+                // A nonstop flight never looks at other airports. For a refuel route, a new or moved
+                // airport can only matter if flying through it is not longer than the cached route.
+                if (!nonstop) {
+                    double detour = FlightPlanning.calculateHaversineDistance(start, after)
+                            + FlightPlanning.calculateHaversineDistance(after, destination);
+                    return detour <= routeMiles + DETOUR_SLACK_MILES;
+                }
+            }
+            return false;
+        }
+    }
+}
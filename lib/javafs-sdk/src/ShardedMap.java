@@ -0,0 +1,119 @@
+package src;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash map that can be copied in constant time, for the indexes of versioned data (AirportManager
+ * snapshots, AirportTextIndex). The entries are spread over SHARD_COUNT small maps and a copy shares
+ * every shard with the map it came from; a shard is copied the first time the copy changes it. A
+ * version that changes a few entries therefore copies a few small maps, not one big one.
+ *
+ * Keys are compared with equals(), or with == for a map made by identity(). Once a map has been
+ * copied it must not be changed anymore (snapshots never are); only the copy may be. Not thread-safe:
+ * changes are made by one writer before the map is shared.
+ */
+final class ShardedMap<K, V> {
+    private static final int SHARD_BITS = 10;
+    private static final int SHARD_COUNT = 1 << SHARD_BITS;
+
+    private final boolean identity;
+    private final Map<K, V>[] shards;   // null = empty shard
+    private final boolean[] ownedShards = new boolean[SHARD_COUNT]; // Shards created or copied by this map
+    private int size;
+
+    private ShardedMap(boolean identity, Map<K, V>[] shards, int size) {
+        this.identity = identity;
+        this.shards = shards;
+        this.size = size;
+    }
+
+    // Returns an empty map that compares keys with equals()
+    static <K, V> ShardedMap<K, V> hashed() {
+        return new ShardedMap<>(false, newShards(), 0);
+    }
+
+    // Returns an empty map that compares keys with ==
+    static <K, V> ShardedMap<K, V> identity() {
+        return new ShardedMap<>(true, newShards(), 0);
+    }
+
+    // Returns a copy that shares every shard with this map; do not change this map afterwards
+    ShardedMap<K, V> copy() {
+        return new ShardedMap<>(identity, Arrays.copyOf(shards, SHARD_COUNT), size);
+    }
+
+    //Getter methods
+    int size() { return size; }
+
+    V get(Object key) {
+        Map<K, V> shard = shards[shard(key)];
+        return shard == null ? null : shard.get(key);
+    }
+
+    boolean containsKey(Object key) {
+        Map<K, V> shard = shards[shard(key)];
+        return shard != null && shard.containsKey(key);
+    }
+
+    V put(K key, V value) {
+        Map<K, V> shard = writable(shard(key));
+        int before = shard.size();
+        V previous = shard.put(key, value);
+        size += shard.size() - before;
+        return previous;
+    }
+
+    V putIfAbsent(K key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    V remove(Object key) {
+        int index = shard(key);
+        if (shards[index] == null || !shards[index].containsKey(key)) return null;
+        size--;
+        return writable(index).remove(key);
+    }
+
+    // Replaces the value of a key only if it currently is oldValue (compared with ==)
+    boolean replace(K key, V oldValue, V newValue) {
+        if (get(key) != oldValue || !containsKey(key)) return false;
+        put(key, newValue);
+        return true;
+    }
+
+    // Calls the action for every entry, in no particular order
+    void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Map<K, V> shard : shards) {
+            if (shard != null) shard.forEach(action);
+        }
+    }
+
+    // Returns the shard at index for changing, copying it first if it is shared with another map
+    private Map<K, V> writable(int index) {
+        if (!ownedShards[index]) {
+            Map<K, V> shard = shards[index];
+            if (identity) {
+                shards[index] = shard == null ? new IdentityHashMap<>() : new IdentityHashMap<>(shard);
+            } else {
+                shards[index] = shard == null ? new HashMap<>() : new HashMap<>(shard);
+            }
+            ownedShards[index] = true;
+        }
+        return shards[index];
+    }
+
+    // Spreads the hash codes (of identity or of the key) evenly over the shards.
+    private int shard(Object key) {
+        int hash = identity ? System.identityHashCode(key) : key.hashCode();
+        return (hash * 0x9E3779B9) >>> (32 - SHARD_BITS);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Map<K, V>[] newShards() {
+        return (Map<K, V>[]) new Map[SHARD_COUNT];
+    }
+}
@@ -0,0 +1,66 @@
+package src;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the airport startup load from the CSV file (before) with the binary snapshot (after).
+ * A synthetic database is written to a temporary directory, so the real data files are not touched.
+ *
+ * Usage: java src.SnapshotBenchmark [airport count] [rounds]   (defaults: 1000000 airports, 5 rounds)
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Path directory = Files.createTempDirectory("airport-snapshot");
+        String csvFileName = directory.resolve("Airport_Database.csv").toString();
+        writeSyntheticCsv(csvFileName, count);
+        AirportSnapshot.write(csvFileName, AirportManager.loadAirportsFromCsv(csvFileName));
+        System.out.printf("%d airports: CSV %d KB, snapshot %d KB%n", count,
+                Files.size(Path.of(csvFileName)) / 1024, Files.size(AirportSnapshot.snapshotFileFor(csvFileName)) / 1024);
+
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            List<Airport> fromCsv = AirportManager.loadAirportsFromCsv(csvFileName);
+            long csvNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Airport> fromSnapshot = AirportSnapshot.read(csvFileName);
+            long snapshotNanos = System.nanoTime() - start;
+
+            if (fromSnapshot == null || fromSnapshot.size() != fromCsv.size()) {
+                throw new IllegalStateException("Snapshot does not match the CSV file");
+            }
+            System.out.printf("round %d: CSV %.1f ms, snapshot %.1f ms (%.1fx)%n", round,
+                    csvNanos / 1e6, snapshotNanos / 1e6, (double) csvNanos / snapshotNanos);
+        }
+
+        Files.delete(AirportSnapshot.snapshotFileFor(csvFileName));
+        Files.delete(Path.of(csvFileName));
+        Files.delete(directory);
+    }
+
+    // Writes random airports spread over North America in the layout of "Airport_Database.csv".
+    private static void writeSyntheticCsv(String fileName, int count) throws IOException {
+        Random random = new Random(42);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(fileName)))) {
+            writer.println("Airport Name,Latitude,Longitude,Frequency,Region_State,Region_Abbr.,City,ICAO,Fuel Types");
+            for (int i = 0; i < count; i++) {
+                writer.println("Synthetic Airport " + i + ","
+                        + (25 + random.nextDouble() * 24) + ","
+                        + (-125 + random.nextDouble() * 58) + ","
+                        + (118 + random.nextInt(19)) + ".0,"
+                        + "State " + (i % 50) + ",S" + (i % 50) + ","
+                        + "City " + (i % 10_000) + ","
+                        + String.format("S%06d", i) + ","
+                        + (1 + random.nextInt(3)));
+            }
+        }
+    }
+}
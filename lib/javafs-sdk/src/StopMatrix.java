@@ -0,0 +1,421 @@
+package src;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed fewest refuel stops between every pair of airports of one AirportTable, per airplane class.
+ * The answer only depends on the airplane's range and fuel, so airplanes with the same range and fuel
+ * mask share one class. For each class:
+ *   1. every row gets a bitset of the rows within range (one leg), found with the spatial index;
+ *   2. a breadth-first search from every row (in parallel) ORs the bitsets of the frontier airports that
+ *      sell the airplane's fuel, so each level is a handful of word operations per airport;
+ *   3. the level at which a row is first reached, minus one, is the stop count, stored as one byte per pair.
+ * The stops follow the same rules as FlightRouter with Objective.MIN_STOPS: the start and destination
+ * need no fuel, every stop in between must sell the airplane's fuel, and no leg is longer than its range.
+ *
+ * The matrices are written next to the airport CSV as "<csv file>.stops" (java src.StopMatrix rebuilds
+ * it offline). Layout (big-endian):
+ *   header:  magic "JFSM", format version, row count, fingerprint of the rows, class count
+ *   classes: range (double), fuel mask (int), then rows * rows stop counts (bytes, row-major)
+ * The fingerprint covers the coordinates and fuel of every row in order; read returns null when it
+ * does not match the table anymore.
+ *
+ * A matrix belongs to one table. Tables never change; an edit that leaves the rows, coordinates and fuel
+ * alone (a new name or frequency) carries the matrix over to the new snapshot's table (see next). After
+ * any other edit the new table has no matrix, and planning falls back to the router until one is
+ * attached again; keepUpToDate does that in the background once the edits stop (see Updater).
+ */
+public final class StopMatrix {
+    private static final int MAGIC = 0x4A46534D; // "JFSM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4;
+    private static final int CLASS_HEADER_BYTES = 8 + 4;
+    private static final byte NO_ROUTE = (byte) 0xFF;
+
+    // Every class holds rows * rows bytes; change the limit with -DstopMatrix.maxAirports
+    private static final int MAX_AIRPORTS = Integer.getInteger("stopMatrix.maxAirports", 10_000);
+    // Quiet time after the last airport or airplane change before Updater rebuilds; -DstopMatrix.rebuildDelayMillis
+    private static final long REBUILD_DELAY_MILLIS = Long.getLong("stopMatrix.rebuildDelayMillis", 2000);
+
+    public static final int UNREACHABLE = -1; // No chain of stops connects the airports
+    public static final int UNKNOWN = -2;     // The airplane's class or one of the airports is not covered
+    public static final int MAX_STOPS = 254;  // Larger stop counts are stored as MAX_STOPS
+
+    private final AirportTable table;
+    private final long fingerprint;
+    private final double[] ranges;    // Per class
+    private final int[] fuelMasks;    // Per class
+    private final byte[][] stops;     // Per class, row-major; rows are found with table.rowOf
+
+    private StopMatrix(AirportTable table, long fingerprint, double[] ranges, int[] fuelMasks, byte[][] stops) {
+        this.table = table;
+        this.fingerprint = fingerprint;
+        this.ranges = ranges;
+        this.fuelMasks = fuelMasks;
+        this.stops = stops;
+    }
+
+    /**
+     * Builds the matrices of every distinct range/fuel class of the airplanes.
+     * @param airportIndex: the airports (the matrix belongs to airportIndex.getTable())
+     * @param airplanes: the fleet
+     */
+    public static StopMatrix build(AirportSpatialIndex airportIndex, Collection<Airplane> airplanes) {
+        if (airportIndex == null || airplanes == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        AirportTable table = airportIndex.getTable();
+        if (table.size() > MAX_AIRPORTS || (long) table.size() * table.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many airports for a stop matrix: " + table.size()
+                    + " (limit " + MAX_AIRPORTS + ", see stopMatrix.maxAirports)");
+        }
+        List<Airplane> classes = new ArrayList<>();
+        for (Airplane airplane : airplanes) {
+            if (classOf(classes, airplane.getMaxRange(), airplane.getFuelMask()) < 0) classes.add(airplane);
+        }
+        double[] ranges = new double[classes.size()];
+        int[] fuelMasks = new int[classes.size()];
+        byte[][] stops = new byte[classes.size()][];
+        for (int c = 0; c < classes.size(); c++) {
+            ranges[c] = classes.get(c).getMaxRange();
+            fuelMasks[c] = classes.get(c).getFuelMask();
+            stops[c] = minStops(airportIndex, ranges[c], fuelMasks[c]);
+        }
+        return new StopMatrix(table, fingerprint(table), ranges, fuelMasks, stops);
+    }
+
+    /**
+     * Returns the same stop counts for the next version of this matrix's table (see AirportTable.next).
+     * Only valid when the new table has the same rows with the same coordinates and fuel.
+     */
+    StopMatrix next(AirportTable next) {
+        return new StopMatrix(next, fingerprint, ranges, fuelMasks, stops);
+    }
+
+    //Getter methods
+    public AirportTable getTable() { return table; }
+    public int getClassCount() { return ranges.length; }
+
+    // Returns true if the matrix has the class of the airplane
+    public boolean covers(Airplane airplane) {
+        return classOf(airplane) >= 0;
+    }
+
+    /**
+     * Fewest refuel stops from one airport to another (0 = nonstop), in constant time.
+     * @return the stop count (at most MAX_STOPS), UNREACHABLE, or UNKNOWN when the airplane's
+     *         class or one of the airports is not part of the matrix
+     */
+    public int getStops(Airport from, Airport to, Airplane airplane) {
+        int fromRow = table.rowOf(from);
+        int toRow = table.rowOf(to);
+        int c = classOf(airplane);
+        if (fromRow < 0 || toRow < 0 || c < 0) return UNKNOWN;
+        byte value = stops[c][fromRow * table.size() + toRow];
+        return value == NO_ROUTE ? UNREACHABLE : value & 0xFF;
+    }
+
+    private int classOf(Airplane airplane) {
+        double range = airplane.getMaxRange();
+        int fuelMask = airplane.getFuelMask();
+        for (int c = 0; c < ranges.length; c++) {
+            if (ranges[c] == range && fuelMasks[c] == fuelMask) return c;
+        }
+        return -1;
+    }
+
+    private static int classOf(List<Airplane> classes, double range, int fuelMask) {
+        for (int c = 0; c < classes.size(); c++) {
+            if (classes.get(c).getMaxRange() == range && classes.get(c).getFuelMask() == fuelMask) return c;
+        }
+        return -1;
+    }
+
+    // Breadth-first search over range bitsets from every row; see the class comment
+    private static byte[] minStops(AirportSpatialIndex airportIndex, double range, int fuelMask) {
+        AirportTable table = airportIndex.getTable();
+        int n = table.size();
+        int words = (n + 63) >>> 6;
+
+        // Rows within one leg of each row. The index returns a superset; the exact distance decides,
+        // with the same formula the router uses.
+        long[] legs = new long[n * words];
+        long[] refuel = new long[words];
+        IntStream.range(0, n).parallel().forEach(from -> {
+            for (int to : airportIndex.findWithinRadius(table.getLatitude(from), table.getLongitude(from), range)) {
+                if (to != from && table.distance(from, to) <= range) legs[from * words + (to >>> 6)] |= 1L << to;
+            }
+        });
+        for (int row = 0; row < n; row++) {
+            if (FuelTypes.compatible(fuelMask, table.getFuelMask(row))) refuel[row >>> 6] |= 1L << row;
+        }
+
+        byte[] stops = new byte[n * n];
+        IntStream.range(0, n).parallel().forEach(start -> {
+            byte[] row = new byte[n];
+            Arrays.fill(row, NO_ROUTE);
+            row[start] = 0;
+            long[] visited = new long[words];
+            long[] frontier = new long[words];
+            long[] next = new long[words];
+            visited[start >>> 6] |= 1L << start;
+            System.arraycopy(legs, start * words, next, 0, words); // Level 1: straight from the start
+            for (int level = 1; ; level++) {
+                boolean any = false;
+                for (int w = 0; w < words; w++) {
+                    long reached = next[w] & ~visited[w];
+                    visited[w] |= reached;
+                    frontier[w] = reached & refuel[w]; // Only airports selling the fuel continue the chain
+                    any |= reached != 0;
+                    for (long bits = reached; bits != 0; bits &= bits - 1) {
+                        row[(w << 6) + Long.numberOfTrailingZeros(bits)] = (byte) Math.min(level - 1, MAX_STOPS);
+                    }
+                }
+                if (!any) break;
+                Arrays.fill(next, 0);
+                for (int w = 0; w < words; w++) {
+                    for (long bits = frontier[w]; bits != 0; bits &= bits - 1) {
+                        int offset = ((w << 6) + Long.numberOfTrailingZeros(bits)) * words;
+                        for (int i = 0; i < words; i++) next[i] |= legs[offset + i];
+                    }
+                }
+            }
+            System.arraycopy(row, 0, stops, start * n, n);
+        });
+        return stops;
+    }
+
+    // Hash of the coordinates and fuel of every row, in row order
+    private static long fingerprint(AirportTable table) {
+        long hash = table.size();
+        for (int row = 0; row < table.size(); row++) {
+            hash = mix(hash, Double.doubleToLongBits(table.getLatitude(row)));
+            hash = mix(hash, Double.doubleToLongBits(table.getLongitude(row)));
+            hash = mix(hash, table.getFuelMask(row));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * 0x9E3779B97F4A7C15L, 31);
+    }
+
+    // Returns the stop matrix file that belongs to a CSV file
+    public static Path fileFor(String csvFileName) {
+        return Path.of(csvFileName + ".stops");
+    }
+
+    /**
+     * Reads the matrices written for a table.
+     * @return the matrices, or null if there is no file or it was written for other airports
+     */
+    public static StopMatrix read(Path file, AirportTable table) {
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return null;
+            int n = buffer.getInt(8);
+            if (n != table.size() || buffer.getLong(12) != fingerprint(table)) {
+                return null; // The airports changed after this file was written
+            }
+            int classes = buffer.getInt(20);
+            long pairs = (long) n * n;
+            if (classes < 0 || HEADER_BYTES + classes * (CLASS_HEADER_BYTES + pairs) > buffer.capacity()) {
+                return null; // Truncated file
+            }
+            double[] ranges = new double[classes];
+            int[] fuelMasks = new int[classes];
+            byte[][] stops = new byte[classes][];
+            int position = HEADER_BYTES;
+            for (int c = 0; c < classes; c++) {
+                ranges[c] = buffer.getDouble(position);
+                fuelMasks[c] = buffer.getInt(position + 8);
+                stops[c] = new byte[(int) pairs];
+                buffer.get(position + CLASS_HEADER_BYTES, stops[c]);
+                position += CLASS_HEADER_BYTES + (int) pairs;
+            }
+            return new StopMatrix(table, buffer.getLong(12), ranges, fuelMasks, stops);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error reading stop matrix: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the matrices to a file. The file is written to a temporary name first and then moved into place.
+     */
+    public void write(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int n = table.size();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putLong(fingerprint).putInt(ranges.length).flip();
+            writeFully(channel, header);
+            for (int c = 0; c < ranges.length; c++) {
+                ByteBuffer classHeader = ByteBuffer.allocate(CLASS_HEADER_BYTES);
+                classHeader.putDouble(ranges[c]).putInt(fuelMasks[c]).flip();
+                writeFully(channel, classHeader);
+                writeFully(channel, ByteBuffer.wrap(stops[c]));
+            }
+        } catch (IOException e) {
+            System.out.println("Error writing stop matrix: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Error writing stop matrix: " + e.getMessage());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads the matrices of the airport database from file when they are up to date and cover every
+     * airplane, otherwise builds and writes them. The result is attached to the table (see
+     * AirportTable.getStopMatrix), so FlightPlanning uses it from then on.
+     * @return the matrices, or null if there are too many airports
+     */
+    public static StopMatrix loadOrBuild(String csvFileName, AirportSpatialIndex airportIndex, Collection<Airplane> airplanes) {
+        Path file = fileFor(csvFileName);
+        StopMatrix matrix = read(file, airportIndex.getTable());
+        if (matrix == null || !airplanes.stream().allMatch(matrix::covers)) {
+            if (airportIndex.size() > MAX_AIRPORTS) return null;
+            matrix = build(airportIndex, airplanes);
+            matrix.write(file);
+        }
+        airportIndex.getTable().setStopMatrix(matrix);
+        return matrix;
+    }
+
+    /**
+     * Loads or builds the matrices for the current airports (see loadOrBuild), then keeps them up to
+     * date while the program runs: after airport or airplane changes, a background thread rebuilds
+     * them for the newest snapshot (see Updater). Close the result to stop.
+     */
+    public static Updater keepUpToDate(AirportManager airportManager, AirplaneManager airplaneManager) {
+        if (airportManager == null || airplaneManager == null) {
+            throw new IllegalArgumentException("Invalid input data: Ensure all values are provided.");
+        }
+        Updater updater = new Updater(airportManager, airplaneManager);
+        airportManager.addChangeListener(updater);
+        airplaneManager.addChangeListener(updater);
+        updater.rebuild();
+        return updater;
+    }
+
+    /**
+     * Rebuilds the stop matrices after airport or airplane changes, on its own daemon thread.
+     * Editors often change many rows in a row (or the file watcher applies a whole file), so the
+     * rebuild waits until no change has come for stopMatrix.rebuildDelayMillis, then builds once for
+     * the newest snapshot, writes the file and attaches the result to that snapshot's table. A change
+     * during the build starts another quiet period. Until the matrix is attached, planning uses the router.
+     */
+    public static final class Updater implements AirportChangeListener, AirplaneChangeListener, AutoCloseable {
+        private final AirportManager airportManager;
+        private final AirplaneManager airplaneManager;
+        private final ScheduledExecutorService background;
+        private final AtomicLong lastChange = new AtomicLong();       // System.nanoTime() of the latest change
+        private final AtomicBoolean scheduled = new AtomicBoolean(); // A rebuild is waiting for the quiet period
+
+        private Updater(AirportManager airportManager, AirplaneManager airplaneManager) {
+            this.airportManager = airportManager;
+            this.airplaneManager = airplaneManager;
+            this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stop-matrix-updater");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public void airportChanged(Airport before, Airport after) {
+            changed();
+        }
+
+        @Override
+        public void airplaneChanged(Airplane before, Airplane after) {
+            changed();
+        }
+
+        // Returns true if the current airport snapshot has a matrix covering every airplane
+        public boolean isUpToDate() {
+            StopMatrix matrix = airportManager.getTable().getStopMatrix();
+            return matrix != null && airplaneManager.getAirplanes().stream().allMatch(matrix::covers);
+        }
+
+        // Stops listening and cancels a waiting rebuild
+        @Override
+        public void close() {
+            airportManager.removeChangeListener(this);
+            airplaneManager.removeChangeListener(this);
+            background.shutdownNow();
+        }
+
+        // Called on the writer's thread: only notes the time, the rebuild runs later in the background
+        private void changed() {
+            lastChange.set(System.nanoTime());
+            if (scheduled.compareAndSet(false, true)) {
+                background.schedule(this::rebuildWhenQuiet, REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void rebuildWhenQuiet() {
+            long wait = TimeUnit.MILLISECONDS.toNanos(REBUILD_DELAY_MILLIS) - (System.nanoTime() - lastChange.get());
+            if (wait > 0) {
+                background.schedule(this::rebuildWhenQuiet, wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+            scheduled.set(false); // Changes from now on schedule another rebuild after this one
+            rebuild();
+        }
+
+        // Attaches matrices for the current snapshot, unless it already has ones covering every airplane
+        private void rebuild() {
+            if (isUpToDate()) return;
+            try {
+                loadOrBuild(airportManager.getFileName(), airportManager.getSpatialIndex(), airplaneManager.getAirplanes());
+            } catch (RuntimeException e) {
+                System.out.println("Error rebuilding stop matrix: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Offline precomputation: rebuilds the stop matrix file of the airport database for every airplane.
+     * Usage: java src.StopMatrix
+     */
+    public static void main(String[] args) {
+        try (AirportManager airportManager = new AirportManager();
+             AirplaneManager airplaneManager = new AirplaneManager()) {
+            long start = System.nanoTime();
+            StopMatrix matrix = build(airportManager.getSpatialIndex(), airplaneManager.getAirplanes());
+            Path file = fileFor(airportManager.getFileName());
+            matrix.write(file);
+            System.out.printf("Wrote %s: %d airports, %d range classes in %.0f ms%n", file, matrix.getTable().size(),
+                    matrix.getClassCount(), (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
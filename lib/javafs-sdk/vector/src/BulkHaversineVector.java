@@ -0,0 +1,53 @@
+package src;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BulkHaversine's two passes on the JDK Vector API, several targets per instruction.
+ * The haversine term of every lane is computed first; lanes past a quarter circle then take their
+ * angle from the chord to the origin's antipode, like the plain loop does.
+ *
+ * Compiles and runs only with --add-modules jdk.incubator.vector (see BulkHaversine); nothing refers
+ * to it by name except BulkHaversine, which loads it when that module is present.
+ */
+final class BulkHaversineVector implements BulkHaversine.Kernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double EARTH_RADIUS_MILES = BulkHaversine.EARTH_RADIUS_MILES;
+
+    @Override
+    public void distances(double x0, double y0, double z0, double[] xs, double[] ys, double[] zs, int count, double[] out) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, zs, i);
+
+            // Pass 1: the haversine term, (chord / 2)^2
+            DoubleVector dx = x.sub(x0);
+            DoubleVector dy = y.sub(y0);
+            DoubleVector dz = z.sub(z0);
+            DoubleVector a = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz)).mul(0.25);
+
+            // Pass 2: the angle
+            DoubleVector distance = a.lanewise(VectorOperators.SQRT).lanewise(VectorOperators.ASIN).mul(2 * EARTH_RADIUS_MILES);
+            VectorMask<Double> far = a.compare(VectorOperators.GT, 0.5);
+            if (far.anyTrue()) {
+                DoubleVector sx = x.add(x0);
+                DoubleVector sy = y.add(y0);
+                DoubleVector sz = z.add(z0);
+                DoubleVector halfChord = sx.mul(sx).add(sy.mul(sy)).add(sz.mul(sz)).lanewise(VectorOperators.SQRT).mul(0.5).min(1);
+                DoubleVector farDistance = halfChord.lanewise(VectorOperators.ASIN).mul(-2).add(Math.PI).mul(EARTH_RADIUS_MILES);
+                distance = distance.blend(farDistance, far);
+            }
+            distance.intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            double dx = xs[i] - x0;
+            double dy = ys[i] - y0;
+            double dz = zs[i] - z0;
+            out[i] = BulkHaversine.angleDistance((dx * dx + dy * dy + dz * dz) * 0.25, x0, y0, z0, xs[i], ys[i], zs[i]);
+        }
+    }
+}